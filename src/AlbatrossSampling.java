@@ -0,0 +1,387 @@
+// Albatross Sampling Algorithm in HotPlanet'11
+// Author: Long Jin(Tsinghua University)
+
+// Input:  1st line is the number of vertices
+//         2nd line is the number of edges
+//         From 3rd line, edge information is followed in the format (FromNode, EndNode)
+// Output: CDF, NMSE of Degree Distribution
+//         Mixing Time
+
+// Init(): Initialize the parameters in graph sampling process
+// MHRW(): Implement Metropolis-Hasting Random Walk algorithm
+// BFS():  Implement Breadth-First Sampling
+// AS():   Implement Albatross Sampling
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Albatross Sampling Algorithm.
+ * This is a straight conversion from
+ * the C# source code available at <a href="https://code.google.com/p/sampling-social-graphs/">this page</a>.
+ * <br/>
+ * <b>Note:</b> in the input file, node numbering
+ * must start from 0.
+ * <br/>
+ * The graph and the estimators are held by {@link Graph}
+ * and {@link Sampler} instances: this class only contains
+ * the parameters of the experiment.
+ * 
+ * @author Long Jin (Original C# source code)
+ * @author Vincent Labatut (Java port)
+ */
+class AlbatrossSampling
+{
+	static int simulation = 1;					// TODO number of repetitions of the sampling process (1000 in the original version)
+	static double alpha = 0.02;					// Jump Probability in AS
+	static int jumpBudget = 10;					// Set Jump-Cost
+	static String path = "data/";				// TODO Fill in the file path
+//	static String path = "/home/vlabatut/eclipse/workspaces/Extraction/Database/googleplus/";
+	static String filename = "kdd03.txt";		// TODO Fill in the file name
+//	static String filename = "giantcomp.network";
+	static int sizeFactor = 20;				// TODO size of the original network divided by this value (20 in the original version)
+//	static int sizeFactor = 1000;
+	static GraphReordering.Order order = null;	// TODO node reordering applied after loading (null to keep the file order)
+	static int checkpointPeriod = 0;			// TODO seconds between two checkpoints of the sampling process (0 to disable, or keep the default period of the sampler when resuming)
+	static boolean resume = false;				// TODO continue the sampling process from its last checkpoint, if any
+	static double[] budgetFractions = null;		// TODO increasing fractions of the real nodes at which the estimation is also recorded (null for none)
+//	static double[] budgetFractions = {0.01, 0.02, 0.03, 0.04};
+	static long cacheBytes = 0;					// TODO memory of the neighbor list cache, in bytes (0 to read the graph directly)
+	static NeighborCache.Policy cachePolicy = NeighborCache.Policy.TINY_LFU;	// TODO eviction policy of the cache
+	static int prefetch = 0;					// TODO number of neighbors fetched along with each list by the cache
+	static boolean binaryResults = false;		// TODO record the results in one binary file (see ResultFile) instead of the text files
+	static boolean groundTruthOnly = false;		// TODO only compute the true distributions, in one pass over the file (see StreamingGroundTruth)
+	static long buildMemory = 0;				// TODO only build the CSR files of the graph on disk, with this memory in bytes (0 to sample, see ExternalGraphBuilder)
+	static boolean streamingOnly = false;		// TODO only run the streaming baselines ES, PIES and NS, in one pass over the file (see StreamingSampler)
+	static long streamingMemory = 0;			// TODO memory of the samples of the streaming baselines, in bytes, more passes being needed if they do not fit (0 for half of the heap)
+
+	private static Graph Init() throws IOException
+	{
+		System.out.println("Loading "+path);
+		Graph graph = Graph.load(filename, path + filename);
+		if (order != null)
+			graph = GraphReordering.reorder(graph, order);
+		printGraph(graph, path, System.out);
+		graph.writeDistributions(path);
+		System.out.println("Loading complete ("+path+")");
+		return graph;
+	}
+
+	/**
+	 * Displays the main properties of a graph and
+	 * the parameters of the experiment.
+	 * 
+	 * @param graph
+	 * 		Loaded graph.
+	 * @param folder
+	 * 		Folder containing the graph file.
+	 * @param out
+	 * 		Stream receiving the text.
+	 */
+	static void printGraph(Graph graph, String folder, PrintStream out)
+	{
+		out.println("Test File: " + graph.name);
+		out.println("Test Path: " + folder);
+		out.println("Average Degree = " + (double)graph.edgeCount / (double)graph.realNodeNumber);
+		out.println("Simulation Times = " + simulation);
+		out.println("Node Number = " + graph.nodeNumber);
+		out.println("Real Node Number = " + graph.realNodeNumber);
+		out.println("Sample Budget = " + graph.realNodeNumber / sizeFactor);
+		out.println("Jump Alpha = " + alpha);
+		out.println("");
+	}
+
+	private static void MHRW(Graph graph) throws IOException
+	{
+		sample(graph, Sampler.Algorithm.MHRW, path, System.out);
+	}
+
+	private static void BFS(Graph graph) throws IOException
+	{
+		sample(graph, Sampler.Algorithm.BFS, path, System.out);
+	}
+
+	private static void MHDA(Graph graph) throws IOException
+	{
+		sample(graph, Sampler.Algorithm.MHDA, path, System.out);
+	}
+
+	private static void NBAS(Graph graph) throws IOException
+	{
+		sample(graph, Sampler.Algorithm.NBAS, path, System.out);
+	}
+
+	private static void AS(Graph graph) throws IOException
+	{
+		System.out.println("Starting sampling");
+		sample(graph, Sampler.Algorithm.AS, path, System.out);
+	}
+
+	/**
+	 * Runs a sampling process with the parameters of this class,
+	 * then records its estimations and the subnetwork sampled
+	 * during the first repetition.
+	 * 
+	 * @param graph
+	 * 		Graph to sample.
+	 * @param algorithm
+	 * 		Sampling process.
+	 * @param folder
+	 * 		Folder receiving the result files.
+	 * @param out
+	 * 		Stream receiving the summary of the results.
+	 * @return
+	 * 		The sampler, after the run.
+	 * 
+	 * @throws IOException
+	 * 		Problem while recording the results or the checkpoints.
+	 */
+	static Sampler sample(Graph graph, Sampler.Algorithm algorithm, String folder, PrintStream out) throws IOException
+	{
+		Sampler sampler = new Sampler(graph, algorithm);
+		sampler.simulation = simulation;
+		sampler.sampleSize = graph.realNodeNumber / sizeFactor;  // Set Total-Cost
+		sampler.alpha = alpha;
+		sampler.jumpBudget = jumpBudget;
+		sampler.recordSample = true;
+		if (budgetFractions != null)
+		{	// the walk must at least reach the largest intermediate budget
+			sampler.budgetFractions = budgetFractions;
+			int largest = (int)(budgetFractions[budgetFractions.length - 1] * graph.realNodeNumber);
+			if (largest > sampler.sampleSize)
+				sampler.sampleSize = largest;
+		}
+		if (checkpointPeriod > 0 || resume)
+		{
+			sampler.checkpointFile = new File(folder, algorithm + "_checkpoint.bin");
+			if (checkpointPeriod > 0)			// otherwise (resume only), the default period of the sampler
+				sampler.checkpointPeriod = checkpointPeriod;
+			sampler.resume = resume;
+		}
+		NeighborCache cache = null;
+		if (cacheBytes > 0 && algorithm != Sampler.Algorithm.PBFS)
+		{
+			cache = new NeighborCache(graph, cacheBytes, cachePolicy);
+			cache.prefetch = prefetch;
+			sampler.source = cache;
+		}
+		sampler.run();
+
+		// TODO on the first iteration, we record the sampled subnetwork
+		exportSampledNetworkAsPajek(folder, algorithm.toString(), graph, sampler.sampledNodes);
+		if (binaryResults)
+			ResultFile.write(sampler, new File(folder, algorithm + "_results.bin"));
+		else
+			sampler.writeResults(folder);
+		sampler.printSummary(out);
+		if (cache != null)
+			cache.printStatistics(out, algorithm.toString());
+		return sampler;
+	}
+
+	/**
+	 * Runs the streaming baselines over an edge list, with the
+	 * parameters of this class, in a single pass (see {@link StreamingSampler}),
+	 * then records their results and the true distributions. The
+	 * number of sampled nodes is computed from the number of nodes
+	 * announced in the header, as the real one is only known at the end.
+	 *
+	 * @param filename
+	 * 		Path of the edge list.
+	 * @param algorithms
+	 * 		Streaming sampling processes.
+	 * @param folder
+	 * 		Folder receiving the results.
+	 * @param out
+	 * 		Stream receiving the summary.
+	 *
+	 * @throws IOException
+	 * 		Problem while reading the file or recording the results.
+	 */
+	static void sampleStream(String filename, List<StreamingSampler.Algorithm> algorithms, String folder, PrintStream out) throws IOException
+	{
+		EdgeReader header = new EdgeReader(filename);
+		header.close();
+		List<StreamingSampler> samplers = new ArrayList<StreamingSampler>();
+		for (StreamingSampler.Algorithm algorithm: algorithms)
+		{
+			StreamingSampler sampler = new StreamingSampler(algorithm, (int)(header.nodeNumber / sizeFactor));
+			sampler.simulation = simulation;
+			sampler.recordSample = true;
+			samplers.add(sampler);
+		}
+		long memory = streamingMemory > 0 ? streamingMemory : Runtime.getRuntime().maxMemory() / 2;
+		long start = System.nanoTime();
+		StreamingGroundTruth truth = new StreamingGroundTruth(filename, false);
+		int passes = StreamingSampler.run(filename, samplers, truth, memory);
+		truth.printSummary(out);
+		out.println("Simulation Times = " + simulation);
+		out.println("Sample Size = " + header.nodeNumber / sizeFactor);
+		out.println("Sample Memory = " + memory + " bytes");
+		out.println("Passes = " + passes);
+		out.println("Pass Time = " + (System.nanoTime() - start) / 1000000 + " ms");
+		out.println("");
+		truth.writeDistributions(folder);
+		for (StreamingSampler sampler: samplers)
+		{
+			exportSampledNetworkAsPajek(folder, sampler.algorithm.toString(), sampler.sampledNodes, sampler.sampledArcs);
+			sampler.writeResults(folder);
+			sampler.printSummary(out, truth);
+		}
+	}
+
+	/**
+	 * TODO
+	 * Records the sampled network, for further use.
+	 * We use the Pajek {@code .net} format: first
+	 * the list of nodes with their id in the new
+	 * network and their original id as a label, and 
+	 * second the list of links, using pairs of (new) ids.
+	 * Nodes are numbered starting from 1. If the graph was
+	 * reordered, the label is still the id from the file.
+	 * 
+	 * @param folder
+	 * 		Folder receiving the network file.
+	 * @param algo
+	 * 		Name of the sampling process, used to name the file.
+	 * @param graph
+	 * 		Original graph.
+	 * @param sampledNodes
+	 * 		Sampled nodes, in the order they were sampled.
+	 * 
+	 * @throws FileNotFoundException 
+	 * 		Problem while recording the file.
+	 * 
+	 * @author
+	 * 		Vincent Labatut
+	 */
+	static void exportSampledNetworkAsPajek(String folder, String algo, Graph graph, IntList sampledNodes) throws FileNotFoundException
+	{	// open file and write nodes
+		Map<Integer,Integer> nodeMap = new HashMap<Integer, Integer>(sampledNodes.size());
+		PrintWriter sw = startPajek(folder, algo, graph, sampledNodes, nodeMap);
+		
+		// write links
+		{	sw.println("*arcs"); //"*edges" is for undirected networks
+			int old1 = 0;
+			for(int[] neigh: graph.outLinks)
+			{	Integer nouv1 = nodeMap.get(old1);
+				if(nouv1!=null)
+				{	for(int old2: neigh)
+					{	Integer nouv2 = nodeMap.get(old2);
+						if(nouv2!=null)
+							sw.println(nouv1+" "+nouv2);
+					}
+				}
+				old1++;
+			}
+		}
+		
+		// close file
+		sw.close();
+		System.out.println("Recording complete");
+	}
+	
+	/**
+	 * Records a sampled network whose links were collected
+	 * while sampling (see {@link StreamingSampler}), in the same
+	 * format as {@link #exportSampledNetworkAsPajek(String, String, Graph, IntList)}.
+	 * 
+	 * @param folder
+	 * 		Folder receiving the network file.
+	 * @param algo
+	 * 		Name of the sampling process, used to name the file.
+	 * @param sampledNodes
+	 * 		Sampled nodes, in the order they were sampled.
+	 * @param arcs
+	 * 		Sampled links, as consecutive pairs of node ids.
+	 * 
+	 * @throws FileNotFoundException 
+	 * 		Problem while recording the file.
+	 */
+	static void exportSampledNetworkAsPajek(String folder, String algo, IntList sampledNodes, IntList arcs) throws FileNotFoundException
+	{	// open file and write nodes
+		Map<Integer,Integer> nodeMap = new HashMap<Integer, Integer>(sampledNodes.size());
+		PrintWriter sw = startPajek(folder, algo, null, sampledNodes, nodeMap);
+		
+		// write links
+		{	sw.println("*arcs");
+			for(int k=0;k<arcs.size();k=k+2)
+				sw.println(nodeMap.get(arcs.get(k))+" "+nodeMap.get(arcs.get(k+1)));
+		}
+		
+		// close file
+		sw.close();
+		System.out.println("Recording complete");
+	}
+	
+	/**
+	 * Opens a Pajek file and writes its nodes, labeled with
+	 * their id in the file (the one in the graph if there is
+	 * no graph). The new id of each node is put in the map.
+	 */
+	private static PrintWriter startPajek(String folder, String algo, Graph graph, IntList sampledNodes, Map<Integer,Integer> nodeMap) throws FileNotFoundException
+	{	// open file
+		String filename = folder + File.separator + algo + "_sample.net";
+		System.out.println("Starting ecording sample ("+filename+")");
+		FileOutputStream fileOut = new FileOutputStream(filename);
+		OutputStreamWriter writer = new OutputStreamWriter(fileOut);
+		PrintWriter sw = new PrintWriter(writer);
+		
+		// write nodes
+		{	int size = sampledNodes.size();
+			sw.println("*vertices "+size);
+			int nouv = 1;
+			for(int k=0;k<size;k++)
+			{	int old = sampledNodes.get(k);
+				nodeMap.put(old,nouv);
+				sw.println(nouv+" \""+(graph==null ? old : graph.label(old))+"\"");
+				nouv++;
+			}
+		}
+		
+		sw.println();
+		return sw;
+	}
+	
+	public static void main(String[] args) throws IOException
+	{
+		if (groundTruthOnly)
+		{
+			StreamingGroundTruth truth = new StreamingGroundTruth(filename, false);
+			truth.read(path + filename);
+			truth.finish();
+			truth.printSummary(System.out);
+			truth.writeDistributions(path);
+			return;
+		}
+		if (streamingOnly)
+		{
+			sampleStream(path + filename, Arrays.asList(StreamingSampler.Algorithm.values()), path, System.out);
+			return;
+		}
+		if (buildMemory > 0)
+		{
+			ExternalGraphBuilder builder = new ExternalGraphBuilder(buildMemory, new File(path));
+			builder.build(path + filename, path + filename);
+			builder.printSummary(System.out);
+			return;
+		}
+		Graph graph = Init();
+		
+//		BFS(graph);
+//		MHRW(graph);
+//		MHDA(graph);
+//		NBAS(graph);
+		AS(graph);
+	}
+}
@@ -0,0 +1,343 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Samples all the graphs contained in a folder, with the
+ * parameters of {@link AlbatrossSampling}. Each graph gets
+ * its own output folder, named after the graph file.
+ * <br/>
+ * The memory needed by each graph is estimated from the size
+ * of its file and its header, before loading it. Graphs are
+ * then processed from the largest to the smallest, and as many
+ * as possible are processed at the same time, as long as their
+ * estimated sizes fit in the heap budget. A graph needing more
+ * than half of the budget is processed alone.
+ * <br/>
+ * Usage: {@code BatchSampling input-folder output-folder [-heap bytes] [-threads n]
+ * [-algo AS,MHRW,BFS,PBFS,MHDA,NBAS] [-simulation n] [-sizeFactor n] [-alpha x] [-jumpBudget n]
+ * [-order DEGREE|RCM|COMMUNITY] [-checkpoint seconds] [-resume] [-budgets 0.01,0.02,...]
+ * [-cache bytes] [-cachePolicy LRU|TINY_LFU|DEGREE] [-prefetch n] [-binary]}
+ */
+class BatchSampling
+{
+	/** Number of edge lines read to estimate the size of a line */
+	private static final int SAMPLE_LINES = 1000;
+
+	final long heapBudget;
+	final int threads;
+	final List<Sampler.Algorithm> algorithms;
+
+	// scheduler state
+	private long reservedBytes = 0;
+	private int running = 0;
+
+	BatchSampling(long heapBudget, int threads, List<Sampler.Algorithm> algorithms)
+	{
+		this.heapBudget = heapBudget;
+		this.threads = threads;
+		this.algorithms = algorithms;
+	}
+
+	/**
+	 * Graph waiting to be processed.
+	 */
+	static class GraphJob
+	{
+		File file;
+		String name;
+		long nodeNumber;
+		long edgeNumber;				// estimated
+		long bytes;						// estimated peak footprint
+	}
+
+	/**
+	 * Estimates the memory needed to process a graph, without
+	 * loading it: the number of nodes comes from the header,
+	 * and the number of edges from the size of the file divided
+	 * by the average length of its first lines.
+	 *
+	 * @param file
+	 * 		Graph file.
+	 * @return
+	 * 		The corresponding job.
+	 *
+	 * @throws IOException
+	 * 		Problem while reading the header, or the file
+	 * 		does not start with the header of a graph.
+	 */
+	static GraphJob estimate(File file) throws IOException
+	{
+		GraphJob result = new GraphJob();
+		result.file = file;
+		// the whole name, so that g.txt and g.net get different folders
+		result.name = file.getName();
+
+		BufferedReader sr = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+		try
+		{
+			String str = sr.readLine();
+			long headerBytes = (str == null ? 0 : str.length()) + 1;
+			result.nodeNumber = parseHeader(file, str);
+			str = sr.readLine();
+			headerBytes = headerBytes + (str == null ? 0 : str.length()) + 1;
+			long declaredEdges = parseHeader(file, str);
+			long sampleBytes = 0;
+			int lines = 0;
+			while (lines < SAMPLE_LINES && (str = sr.readLine()) != null)
+			{
+				sampleBytes = sampleBytes + str.length() + 1;
+				lines++;
+			}
+			if (lines < SAMPLE_LINES)
+				result.edgeNumber = lines;
+			else
+				result.edgeNumber = Math.max(declaredEdges, (file.length() - headerBytes) * lines / sampleBytes);
+		}
+		finally
+		{
+			sr.close();
+		}
+		// graph, plus the arrays of the samplers and their cache
+		result.bytes = Graph.estimateLoadFootprint(result.nodeNumber, result.edgeNumber) + 32 * result.nodeNumber
+			+ AlbatrossSampling.cacheBytes;
+		return result;
+	}
+
+	private static long parseHeader(File file, String str) throws IOException
+	{
+		try
+		{
+			if (str == null)
+				throw new NumberFormatException("missing line");
+			return Long.parseLong(str.trim());
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IOException(file + " does not start with the header of a graph (" + e.getMessage() + ")");
+		}
+	}
+
+	/**
+	 * Processes all the graphs of a folder. The files which do
+	 * not start with the header of a graph (e.g. the files built by
+	 * {@link ExternalGraphBuilder}) are skipped.
+	 *
+	 * @param inputFolder
+	 * 		Folder containing the graph files.
+	 * @param outputFolder
+	 * 		Folder receiving one subfolder per graph.
+	 *
+	 * @throws IOException
+	 * 		Problem while listing the input folder.
+	 * @throws InterruptedException
+	 * 		Interrupted while waiting for memory.
+	 */
+	void run(File inputFolder, final File outputFolder) throws IOException, InterruptedException
+	{
+		List<GraphJob> pending = new ArrayList<GraphJob>();
+		File[] files = inputFolder.listFiles();
+		if (files == null)
+			throw new IOException("Cannot list " + inputFolder);
+		for (File file: files)
+		{
+			if (file.isFile() && !file.isHidden())
+			{
+				try
+				{
+					pending.add(estimate(file));
+				}
+				catch (IOException e)
+				{
+					System.out.println("Batch: skipping " + file.getName() + " (" + e.getMessage() + ")");
+				}
+			}
+		}
+		Collections.sort(pending, new Comparator<GraphJob>()
+		{	@Override
+			public int compare(GraphJob job1, GraphJob job2)
+			{	return Long.compare(job2.bytes, job1.bytes);
+			}
+		});
+		System.out.println("Batch: " + pending.size() + " graphs, heap budget " + heapBudget + " bytes, " + threads + " threads");
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		while (!pending.isEmpty())
+		{
+			GraphJob next = null;
+			synchronized (this)
+			{
+				while ((next = nextJob(pending)) == null)
+					wait();
+				pending.remove(next);
+				reserve(next);
+			}
+			final GraphJob job = next;
+			executor.execute(new Runnable()
+			{	@Override
+				public void run()
+				{	try
+					{	process(job, outputFolder);
+					}
+					finally
+					{	release(job);
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		executor.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		System.out.println("Batch complete");
+	}
+
+	/**
+	 * Picks the largest pending graph which can start now.
+	 * A graph needing more than half of the budget can only
+	 * start when nothing else is running.
+	 */
+	private GraphJob nextJob(List<GraphJob> pending)
+	{
+		if (running >= threads)
+			return null;
+		for (GraphJob job: pending)
+		{
+			if (job.bytes > heapBudget / 2)
+			{
+				if (running == 0)
+					return job;
+			}
+			else if (reservedBytes + job.bytes <= heapBudget)
+				return job;
+		}
+		return null;
+	}
+
+	private synchronized void reserve(GraphJob job)
+	{
+		running++;
+		reservedBytes = reservedBytes + job.bytes;
+	}
+
+	private synchronized void release(GraphJob job)
+	{
+		running--;
+		reservedBytes = reservedBytes - job.bytes;
+		notifyAll();
+	}
+
+	/**
+	 * Loads one graph, then runs each sampling process on it.
+	 * The console only receives one line per graph, the
+	 * detailed summary goes to a file of the output folder.
+	 */
+	private void process(GraphJob job, File outputFolder)
+	{
+		File folder = new File(outputFolder, job.name);
+		folder.mkdirs();
+		long start = System.nanoTime();
+		try
+		{
+			PrintStream out = new PrintStream(new FileOutputStream(new File(folder, "summary.txt")));
+			try
+			{
+				Graph graph = Graph.load(job.file.getName(), job.file.getPath());
+				if (AlbatrossSampling.order != null)
+					graph = GraphReordering.reorder(graph, AlbatrossSampling.order);
+				long loaded = System.nanoTime();
+				AlbatrossSampling.printGraph(graph, job.file.getParent(), out);
+				graph.writeDistributions(folder.getPath());
+				for (Sampler.Algorithm algorithm: algorithms)
+					AlbatrossSampling.sample(graph, algorithm, folder.getPath(), out);
+				System.out.println("Batch: " + job.name + " done (" + graph.realNodeNumber + " nodes, estimated "
+					+ job.bytes + " bytes, loaded in " + (loaded - start) / 1000000 + " ms, sampled in "
+					+ (System.nanoTime() - loaded) / 1000000 + " ms)");
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+		catch (Exception e)
+		{
+			System.out.println("Batch: " + job.name + " failed (" + e + ")");
+		}
+	}
+
+	/**
+	 * Parses a comma-separated list of budget fractions.
+	 *
+	 * @param text
+	 * 		List to parse.
+	 * @return
+	 * 		The fractions.
+	 */
+	static double[] parseFractions(String text)
+	{
+		String[] split = text.split(",");
+		double[] result = new double[split.length];
+		for (int b = 0; b < split.length; b++)
+			result[b] = Double.parseDouble(split[b]);
+		return result;
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException
+	{
+		Runtime rt = Runtime.getRuntime();
+		long heapBudget = (long)((rt.maxMemory() - (rt.totalMemory() - rt.freeMemory())) * 0.8);
+		int threads = rt.availableProcessors();
+		List<Sampler.Algorithm> algorithms = new ArrayList<Sampler.Algorithm>();
+		algorithms.add(Sampler.Algorithm.AS);
+		for (int a = 2; a < args.length; a++)
+		{
+			if (args[a].equals("-heap"))
+				heapBudget = Long.parseLong(args[++a]);
+			else if (args[a].equals("-threads"))
+				threads = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-algo"))
+			{
+				algorithms.clear();
+				for (String algo: args[++a].split(","))
+					algorithms.add(Sampler.Algorithm.valueOf(algo));
+			}
+			else if (args[a].equals("-simulation"))
+				AlbatrossSampling.simulation = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-sizeFactor"))
+				AlbatrossSampling.sizeFactor = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-alpha"))
+				AlbatrossSampling.alpha = Double.parseDouble(args[++a]);
+			else if (args[a].equals("-jumpBudget"))
+				AlbatrossSampling.jumpBudget = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-order"))
+				AlbatrossSampling.order = GraphReordering.Order.valueOf(args[++a]);
+			else if (args[a].equals("-checkpoint"))
+				AlbatrossSampling.checkpointPeriod = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-resume"))
+				AlbatrossSampling.resume = true;
+			else if (args[a].equals("-budgets"))
+				AlbatrossSampling.budgetFractions = parseFractions(args[++a]);
+			else if (args[a].equals("-cache"))
+				AlbatrossSampling.cacheBytes = Long.parseLong(args[++a]);
+			else if (args[a].equals("-cachePolicy"))
+				AlbatrossSampling.cachePolicy = NeighborCache.Policy.valueOf(args[++a]);
+			else if (args[a].equals("-prefetch"))
+				AlbatrossSampling.prefetch = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-binary"))
+				AlbatrossSampling.binaryResults = true;
+			else
+				throw new IllegalArgumentException("Unknown option " + args[a]);
+		}
+		BatchSampling batch = new BatchSampling(heapBudget, threads, algorithms);
+		batch.run(new File(args[0]), new File(args[1]));
+	}
+}
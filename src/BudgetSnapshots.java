@@ -0,0 +1,272 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Estimations of a {@link Sampler} at intermediate budgets. A walk
+ * with a budget of 5% of the nodes goes through 1%, 2%, etc. on its
+ * way, so the estimation can be recorded each time the spent budget
+ * crosses one of these values, instead of running one sampling
+ * process per budget.
+ * <br/>
+ * For each budget, the recorded estimation is the one an independent
+ * run with this budget and the same seed would have ended with, so
+ * the CDF, NMSE and mixing times are accumulated in the same way as
+ * for the final budget. This holds because the final budget only
+ * decides when a walk stops, never how it moves: PBFS, in particular,
+ * lists each level in the order of the sequential BFS (see
+ * {@link ParallelFrontier}), whatever the number of threads. A walk
+ * tuning itself from the final budget would break this property.
+ */
+class BudgetSnapshots
+{
+	final double[] fractions;			// fractions of the real nodes
+	final int[] budgets;				// corresponding budgets
+	final double[][] percent1In;		// CDF
+	final double[][] percent1Out;
+	final double[][] percent2In;		// NMSE
+	final double[][] percent2Out;
+	final int[][] mixingTimeIn;
+	final int[][] mixingTimeOut;
+	final int[][] sampleNumbers;
+	private final Graph graph;
+	private int next;					// first budget not reached yet in the current repetition
+
+	/**
+	 * Creates the accumulators.
+	 *
+	 * @param fractions
+	 * 		Budgets, as increasing fractions of the real nodes.
+	 * @param graph
+	 * 		Sampled graph.
+	 * @param simulation
+	 * 		Number of repetitions.
+	 */
+	BudgetSnapshots(double[] fractions, Graph graph, int simulation)
+	{
+		this.fractions = fractions;
+		this.graph = graph;
+		int number = fractions.length;
+		budgets = new int[number];
+		for (int b = 0; b < number; b++)
+		{
+			budgets[b] = (int)(fractions[b] * graph.realNodeNumber);
+			if (budgets[b] < 1 || (b > 0 && budgets[b] <= budgets[b - 1]))
+				throw new IllegalArgumentException("Budget fractions must give increasing positive budgets");
+		}
+		percent1In = new double[number][graph.maxDegreeIn + 1];
+		percent1Out = new double[number][graph.maxDegreeOut + 1];
+		percent2In = new double[number][graph.maxDegreeIn + 1];
+		percent2Out = new double[number][graph.maxDegreeOut + 1];
+		mixingTimeIn = new int[number][simulation];
+		mixingTimeOut = new int[number][simulation];
+		sampleNumbers = new int[number][simulation];
+	}
+
+	/**
+	 * Largest budget, under which the sampler
+	 * must not stop.
+	 *
+	 * @return
+	 * 		The largest budget.
+	 */
+	int maxBudget()
+	{
+		return budgets[budgets.length - 1];
+	}
+
+	/**
+	 * Called at the start of each repetition.
+	 */
+	void startRepetition()
+	{
+		next = 0;
+	}
+
+	/**
+	 * Called after each sampled node: records the estimation
+	 * for all the budgets the walk just went past.
+	 *
+	 * @param count
+	 * 		Number of the repetition.
+	 * @param i
+	 * 		Budget spent so far.
+	 * @param singleSample
+	 * 		Number of nodes sampled so far.
+	 * @param percent3In
+	 * 		Current in degree counts (not normalized).
+	 * @param percent3Out
+	 * 		Current out degree counts (not normalized).
+	 * @param mixingIn
+	 * 		Current in mixing time, or -1 if not mixed.
+	 * @param mixingOut
+	 * 		Current out mixing time, or -1 if not mixed.
+	 */
+	void update(int count, int i, int singleSample, double[] percent3In, double[] percent3Out, int mixingIn, int mixingOut)
+	{
+		while (next < budgets.length && i >= budgets[next])
+		{
+			accumulate(percent3In, singleSample, graph.percentIn, percent1In[next], percent2In[next]);
+			accumulate(percent3Out, singleSample, graph.percentOut, percent1Out[next], percent2Out[next]);
+			mixingTimeIn[next][count] = mixingIn < 0 ? budgets[next] : mixingIn;
+			mixingTimeOut[next][count] = mixingOut < 0 ? budgets[next] : mixingOut;
+			sampleNumbers[next][count] = singleSample;
+			next++;
+		}
+	}
+
+	private static void accumulate(double[] percent3, int singleSample, double[] percent, double[] percent1, double[] percent2)
+	{
+		for (int m = 0; m < percent.length; m++)
+		{
+			double estimate = percent3[m] / (double)singleSample;
+			percent1[m] = percent1[m] + estimate;
+			percent2[m] = percent2[m] + (estimate - percent[m]) * (estimate - percent[m]);
+		}
+	}
+
+	/**
+	 * Turns the sums into the average CDF and the NMSE,
+	 * once all repetitions are over.
+	 *
+	 * @param simulation
+	 * 		Number of repetitions.
+	 */
+	void finish(int simulation)
+	{
+		for (int b = 0; b < budgets.length; b++)
+		{
+			finish(percent1In[b], percent2In[b], graph.percentIn, simulation);
+			finish(percent1Out[b], percent2Out[b], graph.percentOut, simulation);
+		}
+	}
+
+	private static void finish(double[] percent1, double[] percent2, double[] percent, int simulation)
+	{
+		for (int m = 0; m < percent.length; m++)
+		{
+			percent1[m] = percent1[m] / (double)simulation;
+			if (percent[m] != 0)
+				percent2[m] = Math.sqrt(percent2[m] / (double)simulation) / percent[m];
+			else
+				percent2[m] = 0;
+		}
+	}
+
+	/**
+	 * Records the CDF and NMSE of each budget, in the same files
+	 * as the final budget, the algorithm name being followed by
+	 * the budget fraction (e.g. {@code AS_0.01_in_degree_NMSE.txt}).
+	 *
+	 * @param folder
+	 * 		Folder receiving the files.
+	 * @param algo
+	 * 		Name of the sampling process.
+	 *
+	 * @throws FileNotFoundException
+	 * 		Problem while recording the files.
+	 */
+	void writeResults(String folder, String algo) throws FileNotFoundException
+	{
+		for (int b = 0; b < budgets.length; b++)
+		{
+			String prefix = folder + File.separator + algo + "_" + fractions[b];
+			Graph.writeValues(prefix + "_in_degree_distribution.txt", percent1In[b], graph.maxDegreeIn);
+			Graph.writeValues(prefix + "_out_degree_distribution.txt", percent1Out[b], graph.maxDegreeOut);
+			Graph.writeValues(prefix + "_in_degree_NMSE.txt", percent2In[b], graph.maxDegreeIn);
+			Graph.writeValues(prefix + "_out_degree_NMSE.txt", percent2Out[b], graph.maxDegreeOut);
+		}
+	}
+
+	/**
+	 * Displays the average sample number and mixing
+	 * times of each budget.
+	 *
+	 * @param out
+	 * 		Stream receiving the text.
+	 * @param algo
+	 * 		Name of the sampling process.
+	 * @param simulation
+	 * 		Number of repetitions.
+	 */
+	void printSummary(PrintStream out, String algo, int simulation)
+	{
+		for (int b = 0; b < budgets.length; b++)
+		{
+			long samples = 0;
+			double mixIn = 0;
+			double mixOut = 0;
+			for (int m = 0; m < simulation; m++)
+			{
+				samples = samples + sampleNumbers[b][m];
+				mixIn = mixIn + mixingTimeIn[b][m];
+				mixOut = mixOut + mixingTimeOut[b][m];
+			}
+			out.println(algo + " (budget " + fractions[b] + " = " + budgets[b] + "): Average Sample Number = " + samples / simulation);
+			out.println(algo + " (budget " + fractions[b] + " = " + budgets[b] + "): Average Mixing Time (In) = " + mixIn / simulation);
+			out.println(algo + " (budget " + fractions[b] + " = " + budgets[b] + "): Average Mixing Time (Out) = " + mixOut / simulation);
+		}
+	}
+
+	/**
+	 * Records the sums accumulated over the first
+	 * {@code count} repetitions, in a checkpoint.
+	 */
+	void save(DataOutputStream out, int count) throws IOException
+	{
+		out.writeInt(budgets.length);
+		for (int b = 0; b < budgets.length; b++)
+		{
+			out.writeDouble(fractions[b]);
+			for (double value: percent1In[b])
+				out.writeDouble(value);
+			for (double value: percent2In[b])
+				out.writeDouble(value);
+			for (double value: percent1Out[b])
+				out.writeDouble(value);
+			for (double value: percent2Out[b])
+				out.writeDouble(value);
+			for (int m = 0; m < count; m++)
+			{
+				out.writeInt(mixingTimeIn[b][m]);
+				out.writeInt(mixingTimeOut[b][m]);
+				out.writeInt(sampleNumbers[b][m]);
+			}
+		}
+	}
+
+	/**
+	 * Reads the sums recorded by {@link #save(DataOutputStream, int)}
+	 * into new accumulators, so that the current ones are left
+	 * untouched if the checkpoint is invalid.
+	 */
+	BudgetSnapshots restore(DataInputStream in, int count, int simulation) throws IOException
+	{
+		if (in.readInt() != budgets.length)
+			throw new IOException("Checkpoint recorded with other budgets");
+		BudgetSnapshots result = new BudgetSnapshots(fractions, graph, simulation);
+		for (int b = 0; b < budgets.length; b++)
+		{
+			if (in.readDouble() != fractions[b])
+				throw new IOException("Checkpoint recorded with other budgets");
+			for (int m = 0; m < result.percent1In[b].length; m++)
+				result.percent1In[b][m] = in.readDouble();
+			for (int m = 0; m < result.percent2In[b].length; m++)
+				result.percent2In[b][m] = in.readDouble();
+			for (int m = 0; m < result.percent1Out[b].length; m++)
+				result.percent1Out[b][m] = in.readDouble();
+			for (int m = 0; m < result.percent2Out[b].length; m++)
+				result.percent2Out[b][m] = in.readDouble();
+			for (int m = 0; m < count; m++)
+			{
+				result.mixingTimeIn[b][m] = in.readInt();
+				result.mixingTimeOut[b][m] = in.readInt();
+				result.sampleNumbers[b][m] = in.readInt();
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,248 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Saves and restores the state of a {@link Sampler} between two
+ * repetitions, so that a long run can be resumed after a crash.
+ * <br/>
+ * Each repetition draws its random numbers from a generator derived
+ * from the seed and the repetition number, so the seed is the only
+ * random state to save. A resumed run therefore gives exactly the
+ * same results as an uninterrupted one.
+ * <br/>
+ * The file is written with a {@link DataOutputStream} (big-endian):
+ * <ul>
+ * 	<li>magic number and format version;</li>
+ * 	<li>configuration: algorithm, repetitions, budget, alpha, jump cost, seed;</li>
+ * 	<li>graph: node number, edge count, maximal in and out degrees,
+ * 	hash of the node order (see {@link GraphReordering});</li>
+ * 	<li>next repetition and total number of sampled nodes;</li>
+ * 	<li>summed CDF and squared errors, in then out;</li>
+ * 	<li>mixing times and sample numbers of the completed repetitions;</li>
+ * 	<li>nodes sampled during the first repetition, if recorded;</li>
+ * 	<li>sums of the intermediate budgets, if any (see {@link BudgetSnapshots});</li>
+ * 	<li>sums of the other statistics (see {@link WalkStatistics});</li>
+ * 	<li>CRC32 of everything above.</li>
+ * </ul>
+ * It is first written to a temporary file, which then replaces
+ * the previous checkpoint in a single atomic move.
+ */
+class Checkpoint
+{
+	private static final int MAGIC = 0x41534350;		// "ASCP"
+	private static final int VERSION = 7;
+
+	/**
+	 * Records the state of a sampler.
+	 *
+	 * @param sampler
+	 * 		Sampler to record.
+	 * @param nextCount
+	 * 		Number of the first repetition not completed yet.
+	 * @param file
+	 * 		Checkpoint file.
+	 *
+	 * @throws IOException
+	 * 		Problem while writing the file.
+	 */
+	static void save(Sampler sampler, int nextCount, File file) throws IOException
+	{
+		File temp = new File(file.getPath() + ".tmp");
+		FileOutputStream fileOut = new FileOutputStream(temp);
+		CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(fileOut), new CRC32());
+		DataOutputStream out = new DataOutputStream(checked);
+		try
+		{
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeUTF(sampler.algorithm.name());
+			out.writeInt(sampler.simulation);
+			out.writeInt(sampler.sampleSize);
+			out.writeDouble(sampler.alpha);
+			out.writeInt(sampler.jumpBudget);
+			out.writeLong(sampler.seed);
+
+			Graph graph = sampler.graph;
+			out.writeInt(graph.nodeNumber);
+			out.writeInt(graph.edgeCount);
+			out.writeInt(graph.maxDegreeIn);
+			out.writeInt(graph.maxDegreeOut);
+			out.writeLong(orderHash(graph));
+
+			out.writeInt(nextCount);
+			out.writeLong(sampler.totalSample);
+			writeDoubles(out, sampler.percent1In);
+			writeDoubles(out, sampler.percent2In);
+			writeDoubles(out, sampler.percent1Out);
+			writeDoubles(out, sampler.percent2Out);
+			writeInts(out, sampler.mixingTimeIn, nextCount);
+			writeInts(out, sampler.mixingTimeOut, nextCount);
+			writeInts(out, sampler.sampleNumbers, nextCount);
+			if (sampler.sampledNodes == null)
+				out.writeInt(-1);
+			else
+			{
+				out.writeInt(sampler.sampledNodes.size());
+				writeInts(out, sampler.sampledNodes.values, sampler.sampledNodes.size());
+			}
+			out.writeBoolean(sampler.snapshots != null);
+			if (sampler.snapshots != null)
+				sampler.snapshots.save(out, nextCount);
+			sampler.statistics.save(out);
+			out.flush();
+			out.writeLong(checked.getChecksum().getValue());
+			out.flush();
+			fileOut.getFD().sync();
+		}
+		finally
+		{
+			out.close();
+		}
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Restores the state of a sampler. The sampler must have been
+	 * configured like the recorded one (only the seed is taken from
+	 * the file), and its arrays must have been allocated.
+	 *
+	 * @param sampler
+	 * 		Sampler to restore.
+	 * @param file
+	 * 		Checkpoint file.
+	 * @return
+	 * 		Number of the first repetition not completed yet.
+	 *
+	 * @throws IOException
+	 * 		Problem while reading the file, or the file does
+	 * 		not match the sampler or its graph.
+	 */
+	static int restore(Sampler sampler, File file) throws IOException
+	{
+		CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), new CRC32());
+		DataInputStream in = new DataInputStream(checked);
+		try
+		{
+			if (in.readInt() != MAGIC || in.readInt() != VERSION)
+				throw new IOException(file + " is not a checkpoint of this version");
+			Graph graph = sampler.graph;
+			check(file, "algorithm", in.readUTF(), sampler.algorithm.name());
+			check(file, "repetitions", in.readInt(), sampler.simulation);
+			check(file, "budget", in.readInt(), sampler.sampleSize);
+			check(file, "alpha", in.readDouble(), sampler.alpha);
+			check(file, "jump cost", in.readInt(), sampler.jumpBudget);
+			long seed = in.readLong();
+			check(file, "node number", in.readInt(), graph.nodeNumber);
+			check(file, "edge count", in.readInt(), graph.edgeCount);
+			check(file, "max in degree", in.readInt(), graph.maxDegreeIn);
+			check(file, "max out degree", in.readInt(), graph.maxDegreeOut);
+			check(file, "node order hash", in.readLong(), orderHash(graph));
+
+			int nextCount = in.readInt();
+			long totalSample = in.readLong();
+			double[] percent1In = readDoubles(in, graph.maxDegreeIn + 1);
+			double[] percent2In = readDoubles(in, graph.maxDegreeIn + 1);
+			double[] percent1Out = readDoubles(in, graph.maxDegreeOut + 1);
+			double[] percent2Out = readDoubles(in, graph.maxDegreeOut + 1);
+			int[] mixingTimeIn = readInts(in, nextCount);
+			int[] mixingTimeOut = readInts(in, nextCount);
+			int[] sampleNumbers = readInts(in, nextCount);
+			int sampled = in.readInt();
+			IntList sampledNodes = null;
+			if (sampled >= 0)
+			{
+				sampledNodes = new IntList(sampled);
+				for (int k = 0; k < sampled; k++)
+					sampledNodes.add(in.readInt());
+			}
+			if (in.readBoolean() != (sampler.snapshots != null))
+				throw new IOException(file + " was recorded with other budgets");
+			BudgetSnapshots snapshots = null;
+			if (sampler.snapshots != null)
+				snapshots = sampler.snapshots.restore(in, nextCount, sampler.simulation);
+			WalkStatistics statistics = sampler.statistics.restore(in);
+			long crc = checked.getChecksum().getValue();
+			if (in.readLong() != crc)
+				throw new IOException(file + " is corrupted");
+
+			// everything was read correctly: update the sampler
+			sampler.seed = seed;
+			sampler.totalSample = totalSample;
+			System.arraycopy(percent1In, 0, sampler.percent1In, 0, percent1In.length);
+			System.arraycopy(percent2In, 0, sampler.percent2In, 0, percent2In.length);
+			System.arraycopy(percent1Out, 0, sampler.percent1Out, 0, percent1Out.length);
+			System.arraycopy(percent2Out, 0, sampler.percent2Out, 0, percent2Out.length);
+			System.arraycopy(mixingTimeIn, 0, sampler.mixingTimeIn, 0, nextCount);
+			System.arraycopy(mixingTimeOut, 0, sampler.mixingTimeOut, 0, nextCount);
+			System.arraycopy(sampleNumbers, 0, sampler.sampleNumbers, 0, nextCount);
+			sampler.sampledNodes = sampledNodes;
+			if (snapshots != null)
+				sampler.snapshots = snapshots;
+			sampler.statistics = statistics;
+			return nextCount;
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * Hash of the original ids of the nodes, so that a checkpoint
+	 * of a reordered graph is not resumed on the same graph in
+	 * another order: the node ids of the recorded sample would
+	 * not designate the same nodes.
+	 */
+	private static long orderHash(Graph graph)
+	{
+		long result = 1;
+		for (int v = 0; v < graph.nodeNumber; v++)
+			result = 31 * result + graph.label(v);
+		return result;
+	}
+
+	private static void check(File file, String name, Object recorded, Object expected) throws IOException
+	{
+		if (!recorded.equals(expected))
+			throw new IOException(file + " was recorded with " + name + " " + recorded + ", not " + expected);
+	}
+
+	private static void writeDoubles(DataOutputStream out, double[] values) throws IOException
+	{
+		for (double value: values)
+			out.writeDouble(value);
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values, int number) throws IOException
+	{
+		for (int k = 0; k < number; k++)
+			out.writeInt(values[k]);
+	}
+
+	private static double[] readDoubles(DataInputStream in, int number) throws IOException
+	{
+		double[] result = new double[number];
+		for (int k = 0; k < number; k++)
+			result[k] = in.readDouble();
+		return result;
+	}
+
+	private static int[] readInts(DataInputStream in, int number) throws IOException
+	{
+		int[] result = new int[number];
+		for (int k = 0; k < number; k++)
+			result[k] = in.readInt();
+		return result;
+	}
+}
@@ -0,0 +1,108 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * View of a graph recorded on disk by {@link ExternalGraphBuilder},
+ * read on demand: each call to {@link #neighbors(int)} reads the two
+ * offsets of the node, then its neighbors, with positional reads, so
+ * several samplers can share it. Nothing is kept in memory, which is
+ * why it is meant to be used behind a {@link NeighborCache}.
+ * <br/>
+ * <b>Note:</b> the {@link Sampler} still needs the loaded {@link Graph}
+ * for the degrees of the sampled nodes and the true distributions, so
+ * walking on this view would not reduce the memory used, and the sampling
+ * programs do not offer it. Also, the neighbors are sorted by id here,
+ * whereas {@link Graph} keeps them in file order: the degrees are the same,
+ * but a walk with the same seed does not pick the same neighbors.
+ */
+class CsrGraph implements NeighborSource
+{
+	private final RandomAccessFile offsetFile;
+	private final RandomAccessFile linkFile;
+	private final FileChannel offsets;
+	private final FileChannel links;
+	final int nodeNumber;
+	final long linkNumber;
+
+	/**
+	 * Opens one view of a graph.
+	 *
+	 * @param prefix
+	 * 		Path of the view without its extension,
+	 * 		e.g. {@code data/kdd03.txt.all}.
+	 *
+	 * @throws IOException
+	 * 		Problem while opening the files, or inconsistent files.
+	 */
+	CsrGraph(String prefix) throws IOException
+	{
+		File offsetPath = new File(prefix + ".off");
+		File linkPath = new File(prefix + ".adj");
+		if (offsetPath.length() < 8 || offsetPath.length() % 8 != 0)
+			throw new IOException(offsetPath + " is not an offset file");
+		nodeNumber = (int)(offsetPath.length() / 8 - 1);
+		offsetFile = new RandomAccessFile(offsetPath, "r");
+		linkFile = new RandomAccessFile(linkPath, "r");
+		offsets = offsetFile.getChannel();
+		links = linkFile.getChannel();
+		linkNumber = read(offsets, 8L * nodeNumber, 8).getLong();
+		if (linkNumber * 4 != links.size())
+		{
+			close();
+			throw new IOException(linkPath + " does not match " + offsetPath);
+		}
+	}
+
+	@Override
+	public int[] neighbors(int v)
+	{
+		try
+		{
+			ByteBuffer range = read(offsets, 8L * v, 16);
+			long start = range.getLong();
+			int degree = (int)(range.getLong() - start);
+			int[] result = new int[degree];
+			if (degree > 0)
+				read(links, 4 * start, 4 * degree).asIntBuffer().get(result);
+			return result;
+		}
+		catch (IOException e)
+		{
+			throw new IllegalStateException("Cannot read the neighbors of node " + v, e);
+		}
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException
+	{
+		ByteBuffer result = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		while (result.hasRemaining())
+		{
+			if (channel.read(result, position + result.position()) < 0)
+				throw new IOException("Unexpected end of file");
+		}
+		result.flip();
+		return result;
+	}
+
+	/**
+	 * Closes the files.
+	 *
+	 * @throws IOException
+	 * 		Problem while closing the files.
+	 */
+	void close() throws IOException
+	{
+		try
+		{
+			offsetFile.close();
+		}
+		finally
+		{
+			linkFile.close();
+		}
+	}
+}
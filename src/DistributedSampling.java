@@ -0,0 +1,500 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Samples a graph too large for one JVM, partitioned over several
+ * {@link PartitionWorker} processes. This coordinator only holds the
+ * walkers in transit and the true distributions, computed from the
+ * degree histograms of the partitions.
+ * <br/>
+ * The repetitions of AS or MHRW are run at the same time, one walker
+ * each, in supersteps: each worker moves its walkers until they are
+ * over or step onto a node owned by another worker, then sends them
+ * back in one batch, and the coordinator forwards them. Jumps choose
+ * a partition with a probability proportional to its number of real
+ * nodes, then a real node of this partition, and the starting nodes
+ * are chosen in the same way. Once all walkers are over, their partial
+ * histograms are summed and the estimations accumulated as in
+ * {@link Sampler}.
+ * <br/>
+ * Differences with {@link Sampler}: each walker uses a SplitMix64
+ * generator instead of {@link java.util.Random}, jumps only land on
+ * real nodes, and the mixing times are not computed, since the
+ * samples of a walker are spread over the workers.
+ * <br/>
+ * Usage: {@code DistributedSampling graph-file output-folder (-spawn n [-workerHeap size] | -workers port,port...)
+ * [-range] [-algo AS|MHRW] [-simulation n] [-sizeFactor n] [-alpha x] [-jumpBudget n] [-seed n]}.
+ * With {@code -spawn}, the workers are started as local JVMs; otherwise
+ * they must already be listening on the given loopback ports.
+ */
+class DistributedSampling
+{
+	final String filename;
+	final boolean range;
+	private final Socket[] sockets;
+	private final DataInputStream[] ins;
+	private final DataOutputStream[] outs;
+	private final List<Process> processes = new ArrayList<Process>();
+
+	Graph graph;						// distributions only, no links
+	long[] realCumulated;				// real nodes of the partitions before each one
+
+	double[] percent1In;				// CDF
+	double[] percent1Out;
+	double[] percent2In;				// NMSE
+	double[] percent2Out;
+	int[] sampleNumbers;
+	long totalSample;
+	int supersteps;
+	long migrations;					// walkers sent from one worker to another
+
+	/**
+	 * Connects to workers already listening on the loopback interface.
+	 *
+	 * @param filename
+	 * 		Path of the edge list, readable by all workers.
+	 * @param range
+	 * 		Range partitioning instead of hash partitioning.
+	 * @param ports
+	 * 		Ports of the workers.
+	 *
+	 * @throws IOException
+	 * 		Problem while connecting.
+	 */
+	DistributedSampling(String filename, boolean range, int[] ports) throws IOException
+	{
+		this.filename = filename;
+		this.range = range;
+		sockets = new Socket[ports.length];
+		ins = new DataInputStream[ports.length];
+		outs = new DataOutputStream[ports.length];
+		for (int p = 0; p < ports.length; p++)
+		{
+			sockets[p] = new Socket(InetAddress.getLoopbackAddress(), ports[p]);
+			sockets[p].setTcpNoDelay(true);
+			ins[p] = new DataInputStream(new BufferedInputStream(sockets[p].getInputStream(), 1 << 16));
+			outs[p] = new DataOutputStream(new BufferedOutputStream(sockets[p].getOutputStream(), 1 << 16));
+		}
+	}
+
+	/**
+	 * Starts workers in local JVMs, using the same class path
+	 * as this one.
+	 *
+	 * @param number
+	 * 		Number of workers.
+	 * @param heap
+	 * 		Maximal heap of each worker (e.g. {@code 2g}), null for the default.
+	 * @param processes
+	 * 		Receives the started processes.
+	 * @return
+	 * 		The ports of the workers.
+	 *
+	 * @throws IOException
+	 * 		Problem while starting a worker.
+	 */
+	static int[] spawn(int number, String heap, List<Process> processes) throws IOException
+	{
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		int[] result = new int[number];
+		for (int p = 0; p < number; p++)
+		{
+			List<String> command = new ArrayList<String>();
+			command.add(java);
+			if (heap != null)
+				command.add("-Xmx" + heap);
+			command.add("-cp");
+			command.add(System.getProperty("java.class.path"));
+			command.add("PartitionWorker");
+			ProcessBuilder builder = new ProcessBuilder(command);
+			builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+			Process process = builder.start();
+			processes.add(process);
+			// the worker displays its port once listening
+			BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+			String line = reader.readLine();
+			if (line == null)
+				throw new IOException("Worker " + p + " did not start");
+			result[p] = Integer.parseInt(line.trim());
+		}
+		return result;
+	}
+
+	/**
+	 * Makes each worker load its partition, then computes the true
+	 * distributions from their degree histograms.
+	 *
+	 * @throws IOException
+	 * 		Problem while communicating with the workers.
+	 */
+	void load() throws IOException
+	{
+		int partitions = sockets.length;
+		for (int p = 0; p < partitions; p++)
+		{
+			outs[p].writeInt(PartitionWorker.LOAD);
+			outs[p].writeUTF(filename);
+			outs[p].writeInt(p);
+			outs[p].writeInt(partitions);
+			outs[p].writeBoolean(range);
+			outs[p].flush();
+		}
+		graph = new Graph();
+		graph.name = filename;
+		realCumulated = new long[partitions + 1];
+		long[] nodesIn = new long[1];
+		long[] nodesOut = new long[1];
+		long edges = 0;
+		for (int p = 0; p < partitions; p++)
+		{
+			graph.nodeNumber = (int)ins[p].readLong();
+			realCumulated[p + 1] = realCumulated[p] + ins[p].readLong();
+			edges = edges + ins[p].readLong();
+			nodesIn = readHistogram(ins[p], nodesIn);
+			nodesOut = readHistogram(ins[p], nodesOut);
+		}
+		graph.realNodeNumber = (int)realCumulated[partitions];
+		graph.edgeCount = (int)edges;
+		graph.edgeNumber = graph.edgeCount;
+		graph.maxDegreeIn = nodesIn.length - 1;
+		graph.maxDegreeOut = nodesOut.length - 1;
+		graph.percentIn = Graph.cumulate(nodesIn, graph.realNodeNumber);
+		graph.percentOut = Graph.cumulate(nodesOut, graph.realNodeNumber);
+	}
+
+	/**
+	 * Adds pairs (degree, count) to a histogram, which is
+	 * extended if needed.
+	 */
+	private static long[] readHistogram(DataInputStream in, long[] histogram) throws IOException
+	{
+		int number = in.readInt();
+		for (int k = 0; k < number; k++)
+		{
+			int degree = in.readInt();
+			long count = in.readLong();
+			if (degree >= histogram.length)
+			{
+				long[] temp = new long[degree + 1];
+				System.arraycopy(histogram, 0, temp, 0, histogram.length);
+				histogram = temp;
+			}
+			histogram[degree] = histogram[degree] + count;
+		}
+		return histogram;
+	}
+
+	/**
+	 * Runs all the repetitions, then computes the
+	 * average CDF and the NMSE.
+	 *
+	 * @param algorithm
+	 * 		AS or MHRW.
+	 * @param simulation
+	 * 		Number of repetitions.
+	 * @param sampleSize
+	 * 		Budget of each repetition.
+	 * @param alpha
+	 * 		Jump probability (AS).
+	 * @param jumpBudget
+	 * 		Jump cost (AS).
+	 * @param seed
+	 * 		Seed of the run, see {@link Sampler#repetitionSeed(long, int)}.
+	 *
+	 * @throws IOException
+	 * 		Problem while communicating with the workers.
+	 */
+	void run(Sampler.Algorithm algorithm, int simulation, int sampleSize, double alpha, int jumpBudget, long seed) throws IOException
+	{
+		if (algorithm != Sampler.Algorithm.AS && algorithm != Sampler.Algorithm.MHRW)
+			throw new IllegalArgumentException("Only AS and MHRW can run on a partitioned graph");
+		int partitions = sockets.length;
+		for (int p = 0; p < partitions; p++)
+		{
+			outs[p].writeInt(PartitionWorker.START);
+			outs[p].writeUTF(algorithm.name());
+			outs[p].writeDouble(alpha);
+			outs[p].writeInt(jumpBudget);
+			outs[p].writeInt(sampleSize);
+			outs[p].writeInt(simulation);
+			for (long real: realCumulated)
+				outs[p].writeLong(real);
+			outs[p].flush();
+		}
+
+		List<List<PartitionWorker.Walker>> waiting = new ArrayList<List<PartitionWorker.Walker>>();
+		for (int p = 0; p < partitions; p++)
+			waiting.add(new ArrayList<PartitionWorker.Walker>());
+		for (int count = 0; count < simulation; count++)
+		{
+			PartitionWorker.Walker walker = new PartitionWorker.Walker();
+			walker.id = count;
+			walker.random = Sampler.repetitionSeed(seed, count);
+			walker.state = PartitionWorker.Walker.STARTING;
+			waiting.get(PartitionWorker.jump(walker, realCumulated)).add(walker);
+		}
+
+		// supersteps: all batches are sent, then all answers are read
+		// (the walkers over are reported to all workers, which drop their queried nodes)
+		supersteps = 0;
+		migrations = 0;
+		int remaining = simulation;
+		IntList finished = new IntList();
+		while (remaining > 0)
+		{
+			for (int p = 0; p < partitions; p++)
+			{
+				List<PartitionWorker.Walker> walkers = waiting.get(p);
+				outs[p].writeInt(PartitionWorker.STEP);
+				outs[p].writeInt(finished.size());
+				for (int k = 0; k < finished.size(); k++)
+					outs[p].writeInt(finished.get(k));
+				outs[p].writeInt(walkers.size());
+				for (PartitionWorker.Walker walker: walkers)
+					walker.write(outs[p]);
+				outs[p].flush();
+				walkers.clear();
+			}
+			finished.clear();
+			for (int p = 0; p < partitions; p++)
+			{
+				int over = ins[p].readInt();
+				for (int k = 0; k < over; k++)
+					finished.add(ins[p].readInt());
+				remaining = remaining - over;
+				for (int q = 0; q < partitions; q++)
+				{
+					int number = ins[p].readInt();
+					for (int k = 0; k < number; k++)
+						waiting.get(q).add(PartitionWorker.Walker.read(ins[p]));
+					migrations = migrations + number;
+				}
+			}
+			supersteps++;
+		}
+
+		// reduction of the partial histograms, one walker at a time
+		int maxDegreeIn = graph.maxDegreeIn;
+		int maxDegreeOut = graph.maxDegreeOut;
+		percent1In = new double[maxDegreeIn + 1];
+		percent1Out = new double[maxDegreeOut + 1];
+		percent2In = new double[maxDegreeIn + 1];
+		percent2Out = new double[maxDegreeOut + 1];
+		sampleNumbers = new int[simulation];
+		totalSample = 0;
+		for (int count = 0; count < simulation; count++)
+		{
+			long[] samplesIn = new long[maxDegreeIn + 1];
+			long[] samplesOut = new long[maxDegreeOut + 1];
+			for (int p = 0; p < partitions; p++)
+			{
+				outs[p].writeInt(PartitionWorker.COLLECT);
+				outs[p].writeInt(count);
+				outs[p].flush();
+				samplesIn = readHistogram(ins[p], samplesIn);
+				samplesOut = readHistogram(ins[p], samplesOut);
+			}
+			int singleSample = 0;
+			for (long number: samplesIn)
+				singleSample = singleSample + (int)number;
+			sampleNumbers[count] = singleSample;
+			totalSample = totalSample + singleSample;
+			accumulate(samplesIn, singleSample, graph.percentIn, percent1In, percent2In);
+			accumulate(samplesOut, singleSample, graph.percentOut, percent1Out, percent2Out);
+		}
+
+		for (int m = 0; m <= maxDegreeIn; m++)
+		{
+			percent1In[m] = percent1In[m] / (double)simulation;
+			if (graph.percentIn[m] != 0)
+				percent2In[m] = Math.sqrt(percent2In[m] / (double)simulation) / graph.percentIn[m];
+			else
+				percent2In[m] = 0;
+		}
+		for (int m = 0; m <= maxDegreeOut; m++)
+		{
+			percent1Out[m] = percent1Out[m] / (double)simulation;
+			if (graph.percentOut[m] != 0)
+				percent2Out[m] = Math.sqrt(percent2Out[m] / (double)simulation) / graph.percentOut[m];
+			else
+				percent2Out[m] = 0;
+		}
+	}
+
+	/**
+	 * Adds the estimated CDF of one repetition, computed from
+	 * its degree histogram, to the sums.
+	 */
+	private static void accumulate(long[] samples, int singleSample, double[] percent, double[] percent1, double[] percent2)
+	{
+		double percent3 = 0;
+		for (int m = 0; m < percent.length; m++)
+		{
+			percent3 = percent3 + samples[m];
+			double estimate = percent3 / (double)singleSample;
+			percent1[m] = percent1[m] + estimate;
+			percent2[m] = percent2[m] + (estimate - percent[m]) * (estimate - percent[m]);
+		}
+	}
+
+	/**
+	 * Records the true and estimated distributions, in the
+	 * same files as {@link Sampler#writeResults(String)}.
+	 *
+	 * @param folder
+	 * 		Folder receiving the files.
+	 * @param algo
+	 * 		Name of the sampling process.
+	 *
+	 * @throws FileNotFoundException
+	 * 		Problem while recording the files.
+	 */
+	void writeResults(String folder, String algo) throws FileNotFoundException
+	{
+		graph.writeDistributions(folder);
+		String prefix = folder + File.separator + algo;
+		Graph.writeValues(prefix + "_in_degree_distribution.txt", percent1In, graph.maxDegreeIn);
+		Graph.writeValues(prefix + "_out_degree_distribution.txt", percent1Out, graph.maxDegreeOut);
+		Graph.writeValues(prefix + "_in_degree_NMSE.txt", percent2In, graph.maxDegreeIn);
+		Graph.writeValues(prefix + "_out_degree_NMSE.txt", percent2Out, graph.maxDegreeOut);
+	}
+
+	/**
+	 * Displays the averages over the repetitions, and
+	 * the communication statistics.
+	 *
+	 * @param out
+	 * 		Stream receiving the text.
+	 * @param algo
+	 * 		Name of the sampling process.
+	 */
+	void printSummary(PrintStream out, String algo)
+	{
+		int simulation = sampleNumbers.length;
+		out.println(algo + ": Average Sample Number = " + totalSample / simulation);
+		out.println(algo + ": Supersteps = " + supersteps);
+		out.println(algo + ": Migrations = " + migrations + " (" + (double)migrations / totalSample + " per sample)");
+	}
+
+	/**
+	 * Stops the workers and closes the connections.
+	 *
+	 * @throws IOException
+	 * 		Problem while closing the connections.
+	 */
+	void close() throws IOException
+	{
+		for (int p = 0; p < sockets.length; p++)
+		{
+			try
+			{
+				outs[p].writeInt(PartitionWorker.QUIT);
+				outs[p].flush();
+			}
+			finally
+			{
+				sockets[p].close();
+			}
+		}
+		for (Process process: processes)
+		{
+			try
+			{
+				process.waitFor();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				process.destroy();
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		String filename = args[0];
+		String folder = args[1];
+		int spawn = 0;
+		String workerHeap = null;
+		int[] ports = null;
+		boolean range = false;
+		Sampler.Algorithm algorithm = Sampler.Algorithm.AS;
+		int simulation = AlbatrossSampling.simulation;
+		int sizeFactor = AlbatrossSampling.sizeFactor;
+		double alpha = AlbatrossSampling.alpha;
+		int jumpBudget = AlbatrossSampling.jumpBudget;
+		long seed = System.nanoTime();
+		for (int a = 2; a < args.length; a++)
+		{
+			if (args[a].equals("-spawn"))
+				spawn = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-workerHeap"))
+				workerHeap = args[++a];
+			else if (args[a].equals("-workers"))
+			{
+				String[] values = args[++a].split(",");
+				ports = new int[values.length];
+				for (int p = 0; p < values.length; p++)
+					ports[p] = Integer.parseInt(values[p].trim());
+			}
+			else if (args[a].equals("-range"))
+				range = true;
+			else if (args[a].equals("-algo"))
+				algorithm = Sampler.Algorithm.valueOf(args[++a]);
+			else if (args[a].equals("-simulation"))
+				simulation = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-sizeFactor"))
+				sizeFactor = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-alpha"))
+				alpha = Double.parseDouble(args[++a]);
+			else if (args[a].equals("-jumpBudget"))
+				jumpBudget = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-seed"))
+				seed = Long.parseLong(args[++a]);
+			else
+				throw new IllegalArgumentException("Unknown option " + args[a]);
+		}
+
+		List<Process> processes = new ArrayList<Process>();
+		if (spawn > 0)
+			ports = spawn(spawn, workerHeap, processes);
+		if (ports == null)
+			throw new IllegalArgumentException("Either -spawn or -workers is needed");
+		DistributedSampling sampling = new DistributedSampling(filename, range, ports);
+		sampling.processes.addAll(processes);
+		try
+		{
+			long start = System.nanoTime();
+			sampling.load();
+			Graph graph = sampling.graph;
+			System.out.println("Test File: " + filename);
+			System.out.println("Partitions = " + ports.length + (range ? " (range)" : " (hash)"));
+			System.out.println("Node Number = " + graph.nodeNumber);
+			System.out.println("Real Node Number = " + graph.realNodeNumber);
+			System.out.println("Sample Budget = " + graph.realNodeNumber / sizeFactor);
+			System.out.println("Loading complete (" + (System.nanoTime() - start) / 1000000 + " ms)");
+
+			start = System.nanoTime();
+			sampling.run(algorithm, simulation, graph.realNodeNumber / sizeFactor, alpha, jumpBudget, seed);
+			System.out.println("Sampling complete (" + (System.nanoTime() - start) / 1000000 + " ms)");
+			sampling.writeResults(folder, algorithm.toString());
+			sampling.printSummary(System.out, algorithm.toString());
+		}
+		finally
+		{
+			sampling.close();
+		}
+	}
+}
@@ -0,0 +1,149 @@
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Sequential reader for the edge list format used by
+ * {@link AlbatrossSampling}: number of vertices, number of
+ * edges, then one edge per line (FromNode, EndNode).
+ * <br/>
+ * The bytes are parsed directly, without creating one string
+ * per line, so that very large files can be scanned quickly.
+ * The two ids of a line can be separated by tabs or spaces,
+ * and anything after the second id is ignored.
+ */
+class EdgeReader
+{
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final InputStream in;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position = 0;
+	private int limit = 0;
+
+	final long nodeNumber;					// as announced in the header
+	final long edgeNumber;					// as announced in the header
+	long from;								// current edge
+	long to;
+	long lineNumber = 2;
+
+	/**
+	 * Opens a file and reads its header.
+	 *
+	 * @param filename
+	 * 		Path of the edge list.
+	 *
+	 * @throws IOException
+	 * 		Problem while reading the header (the file is then closed).
+	 */
+	EdgeReader(String filename) throws IOException
+	{
+		in = new BufferedInputStream(new FileInputStream(filename), BUFFER_SIZE);
+		boolean success = false;
+		try
+		{
+			nodeNumber = readNumber();
+			skipLine();
+			edgeNumber = readNumber();
+			skipLine();
+			success = true;
+		}
+		finally
+		{
+			if (!success)
+				in.close();
+		}
+	}
+
+	/**
+	 * Reads the next edge into {@link #from} and {@link #to}.
+	 *
+	 * @return
+	 * 		{@code false} if the end of the file was reached.
+	 *
+	 * @throws IOException
+	 * 		Problem while reading the file, or malformed line.
+	 */
+	boolean next() throws IOException
+	{
+		int c;
+		// skip blank lines
+		do
+		{
+			c = peek();
+			if (c == '\n' || c == '\r')
+			{
+				position++;
+				if (c == '\n')
+					lineNumber++;
+			}
+		}
+		while (c == '\n' || c == '\r');
+		if (c < 0)
+			return false;
+		lineNumber++;
+		from = readNumber();
+		to = readNumber();
+		skipLine();
+		return true;
+	}
+
+	/**
+	 * Closes the file.
+	 *
+	 * @throws IOException
+	 * 		Problem while closing the file.
+	 */
+	void close() throws IOException
+	{
+		in.close();
+	}
+
+	private int peek() throws IOException
+	{
+		if (position == limit)
+		{
+			limit = in.read(buffer, 0, buffer.length);
+			position = 0;
+			if (limit <= 0)
+			{
+				limit = 0;
+				return -1;
+			}
+		}
+		return buffer[position];
+	}
+
+	private long readNumber() throws IOException
+	{
+		int c = peek();
+		while (c == ' ' || c == '\t')
+		{
+			position++;
+			c = peek();
+		}
+		if (c < '0' || c > '9')
+			throw new IOException("Number expected on line " + lineNumber);
+		long result = 0;
+		while (c >= '0' && c <= '9')
+		{
+			result = result * 10 + (c - '0');
+			position++;
+			c = peek();
+		}
+		return result;
+	}
+
+	private void skipLine() throws IOException
+	{
+		int c = peek();
+		while (c >= 0 && c != '\n')
+		{
+			position++;
+			c = peek();
+		}
+		if (c == '\n')
+			position++;
+	}
+}
@@ -0,0 +1,612 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the adjacency of a graph on disk, in CSR form, with a bounded
+ * amount of memory, instead of loading every edge in the heap like
+ * {@link Graph#load(String, String)}.
+ * <br/>
+ * The edge list is read once (see {@link EdgeReader}). Each edge is
+ * stored twice, as a (source, target) pair for the out view and as a
+ * (target, source) pair for the in view, each pair being packed in a
+ * {@code long}, so that sorting the longs sorts the pairs. When the
+ * buffers are full, they are sorted and written to temporary files
+ * (sorted runs), with unique names so that several builds can share
+ * the same temporary folder. The runs are then merged (external merge sort), in
+ * several passes if there are too many of them to be read at the same
+ * time. The last pass merges the out and in runs simultaneously, and
+ * writes the three views at once: out, in, and the undirected view
+ * (the union of both, duplicates removed, like {@link Graph#allLinks}).
+ * <br/>
+ * Each view is recorded in two little-endian files, named after the
+ * graph file: {@code <name>.<view>.off} holds {@code nodeNumber+1}
+ * int64 offsets, and {@code <name>.<view>.adj} the int32 neighbors,
+ * those of node {@code v} being between offsets {@code v} and
+ * {@code v+1}. The neighbors of a node are sorted by id, whereas
+ * {@link Graph} keeps them in file order. Like in {@link Graph},
+ * self-loops are ignored, and multiple edges are kept in the out and
+ * in views. The files can be read with {@link CsrGraph}.
+ * <br/>
+ * The memory budget covers the two sort buffers (16 bytes per edge),
+ * then the read buffers of the merge: the heap must be a bit larger.
+ * <br/>
+ * Usage: {@code ExternalGraphBuilder graph-file [-out folder] [-tmp folder] [-memory bytes]}
+ */
+class ExternalGraphBuilder
+{
+	/** Size of the buffer of each run read during a merge */
+	private static final int READ_BUFFER = 1 << 16;
+	/** Size of the buffer of each written file */
+	private static final int WRITE_BUFFER = 1 << 20;
+	/** Value returned by a merge once all its runs are read */
+	private static final long END = Long.MAX_VALUE;
+	/** Names of the views, in the file names */
+	static final String[] VIEWS = {"out", "in", "all"};
+
+	private final long memory;
+	private final File tempFolder;
+
+	// statistics
+	long nodeNumber;
+	long edgeCount;						// edges read, self-loops excluded
+	long bytesRead;
+	int runs;							// sorted runs written by the first pass
+	int passes;							// merge passes, including the last one
+	long[] viewEdges = new long[VIEWS.length];
+	int[] maxDegrees = new int[VIEWS.length];
+	long readTime;						// nanoseconds
+	long mergeTime;
+
+	/**
+	 * Creates a builder.
+	 *
+	 * @param memory
+	 * 		Memory used for the sort buffers, in bytes.
+	 * @param tempFolder
+	 * 		Folder receiving the sorted runs.
+	 */
+	ExternalGraphBuilder(long memory, File tempFolder)
+	{
+		this.memory = memory;
+		this.tempFolder = tempFolder;
+	}
+
+	/**
+	 * Builds the three views of a graph.
+	 *
+	 * @param filename
+	 * 		Path of the edge list.
+	 * @param prefix
+	 * 		Path of the files to create, without the view name
+	 * 		and extension.
+	 *
+	 * @throws IOException
+	 * 		Problem while reading the edge list or writing the files.
+	 */
+	void build(String filename, String prefix) throws IOException
+	{
+		long start = System.nanoTime();
+		List<File> outRuns = new ArrayList<File>();
+		List<File> inRuns = new ArrayList<File>();
+		try
+		{
+			readRuns(filename, outRuns, inRuns);
+			readTime = System.nanoTime() - start;
+
+			// merge until the last pass can read all the runs at once
+			int fanIn = (int)Math.max(2, Math.min(Integer.MAX_VALUE, memory / READ_BUFFER / 2));
+			passes = 1;
+			while (outRuns.size() > fanIn || inRuns.size() > fanIn)
+			{
+				reduce(outRuns, fanIn);
+				reduce(inRuns, fanIn);
+				passes++;
+			}
+			writeViews(outRuns, inRuns, prefix);
+			mergeTime = System.nanoTime() - start - readTime;
+		}
+		finally
+		{
+			for (File file: outRuns)
+				file.delete();
+			for (File file: inRuns)
+				file.delete();
+		}
+	}
+
+	/**
+	 * First pass: reads the edges, and writes them as sorted runs.
+	 */
+	private void readRuns(String filename, List<File> outRuns, List<File> inRuns) throws IOException
+	{
+		int capacity = (int)Math.max(1024, Math.min(Integer.MAX_VALUE - 8, memory / 16));
+		long[] outPairs = new long[capacity];
+		long[] inPairs = new long[capacity];
+		int size = 0;
+		EdgeReader reader = new EdgeReader(filename);
+		try
+		{
+			nodeNumber = reader.nodeNumber;
+			if (nodeNumber > Integer.MAX_VALUE)
+				throw new IOException("Too many nodes in " + filename + ": " + nodeNumber);
+			while (reader.next())
+			{
+				if (reader.from >= nodeNumber || reader.to >= nodeNumber)
+					throw new IOException("Node id out of range on line " + reader.lineNumber + " of " + filename);
+				if (reader.from == reader.to)
+					continue;
+				outPairs[size] = reader.from << 32 | reader.to;
+				inPairs[size] = reader.to << 32 | reader.from;
+				size++;
+				edgeCount++;
+				if (size == capacity)
+				{
+					outRuns.add(writeRun(outPairs, size));
+					inRuns.add(writeRun(inPairs, size));
+					size = 0;
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+		bytesRead = new File(filename).length();
+		if (size > 0 || outRuns.isEmpty())
+		{
+			outRuns.add(writeRun(outPairs, size));
+			inRuns.add(writeRun(inPairs, size));
+		}
+		runs = outRuns.size() + inRuns.size();
+	}
+
+	private File writeRun(long[] pairs, int size) throws IOException
+	{
+		Arrays.sort(pairs, 0, size);
+		File result = newRunFile();
+		LongWriter writer = new LongWriter(result);
+		try
+		{
+			for (int k = 0; k < size; k++)
+				writer.put(pairs[k]);
+		}
+		finally
+		{
+			writer.close();
+		}
+		return result;
+	}
+
+	private File newRunFile() throws IOException
+	{
+		File result = File.createTempFile("run", ".tmp", tempFolder);
+		result.deleteOnExit();
+		return result;
+	}
+
+	/**
+	 * Intermediate pass: merges the runs by groups of
+	 * {@code fanIn}, replacing them in the list.
+	 */
+	private void reduce(List<File> runList, int fanIn) throws IOException
+	{
+		List<File> result = new ArrayList<File>();
+		for (int r = 0; r < runList.size(); r = r + fanIn)
+		{
+			List<File> group = runList.subList(r, Math.min(runList.size(), r + fanIn));
+			if (group.size() == 1)
+			{
+				result.add(group.get(0));
+				continue;
+			}
+			File merged = newRunFile();
+			Merger merger = new Merger(group);
+			LongWriter writer = new LongWriter(merged);
+			try
+			{
+				for (long pair = merger.next(); pair != END; pair = merger.next())
+					writer.put(pair);
+			}
+			finally
+			{
+				writer.close();
+				merger.close();
+			}
+			for (File file: group)
+				file.delete();
+			result.add(merged);
+		}
+		runList.clear();
+		runList.addAll(result);
+	}
+
+	/**
+	 * Last pass: the undirected view receives the union of
+	 * both merges, which come in the same order.
+	 */
+	private void writeViews(List<File> outRuns, List<File> inRuns, String prefix) throws IOException
+	{
+		Merger outMerger = new Merger(outRuns);
+		Merger inMerger = new Merger(inRuns);
+		CsrWriter[] writers = new CsrWriter[VIEWS.length];
+		try
+		{
+			for (int w = 0; w < writers.length; w++)
+				writers[w] = new CsrWriter(prefix + "." + VIEWS[w], (int)nodeNumber);
+			long out = outMerger.next();
+			long in = inMerger.next();
+			long last = -1;
+			while (out != END || in != END)
+			{
+				long pair;
+				if (out <= in)
+				{
+					pair = out;
+					writers[0].add(pair);
+					out = outMerger.next();
+				}
+				else
+				{
+					pair = in;
+					writers[1].add(pair);
+					in = inMerger.next();
+				}
+				if (pair != last)
+				{
+					writers[2].add(pair);
+					last = pair;
+				}
+			}
+			for (int w = 0; w < writers.length; w++)
+			{
+				writers[w].finish();
+				viewEdges[w] = writers[w].size;
+				maxDegrees[w] = writers[w].maxDegree;
+			}
+		}
+		finally
+		{
+			for (CsrWriter writer: writers)
+			{
+				if (writer != null)
+					writer.close();
+			}
+			outMerger.close();
+			inMerger.close();
+		}
+	}
+
+	/**
+	 * Displays the size of the views, the throughput of
+	 * each phase and the peak resident memory.
+	 *
+	 * @param out
+	 * 		Stream receiving the text.
+	 */
+	void printSummary(PrintStream out)
+	{
+		double seconds = (readTime + mergeTime) / 1e9;
+		out.println("Node Number = " + nodeNumber);
+		out.println("Edges Read = " + edgeCount);
+		for (int w = 0; w < VIEWS.length; w++)
+			out.println("View " + VIEWS[w] + ": " + viewEdges[w] + " links, max degree " + maxDegrees[w]);
+		out.println("Sorted Runs = " + runs + ", merge passes = " + passes);
+		out.println("Run Phase = " + readTime / 1000000 + " ms (" + format(edgeCount / (readTime / 1e9)) + " edges/s, "
+			+ format(bytesRead / 1e6 / (readTime / 1e9)) + " MB/s)");
+		out.println("Merge Phase = " + mergeTime / 1000000 + " ms");
+		out.println("Build Throughput = " + format(edgeCount / seconds) + " edges/s");
+		out.println("Peak RSS = " + peakResidentMemory());
+	}
+
+	private static String format(double value)
+	{
+		return String.format("%.0f", value);
+	}
+
+	/**
+	 * Peak resident set size of the JVM, as reported by Linux.
+	 *
+	 * @return
+	 * 		The {@code VmHWM} line of {@code /proc/self/status},
+	 * 		or "unavailable" on other systems.
+	 */
+	static String peakResidentMemory()
+	{
+		File status = new File("/proc/self/status");
+		if (!status.exists())
+			return "unavailable";
+		try
+		{
+			BufferedReader reader = new BufferedReader(new FileReader(status));
+			try
+			{
+				String line;
+				while ((line = reader.readLine()) != null)
+				{
+					if (line.startsWith("VmHWM:"))
+						return line.substring(6).trim();
+				}
+			}
+			finally
+			{
+				reader.close();
+			}
+		}
+		catch (IOException e)
+		{	// nothing to report
+		}
+		return "unavailable";
+	}
+
+	/**
+	 * Sequential writer of big-endian longs (temporary runs).
+	 */
+	private static class LongWriter
+	{
+		private final FileOutputStream out;
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER);
+
+		LongWriter(File file) throws IOException
+		{
+			out = new FileOutputStream(file);
+			channel = out.getChannel();
+		}
+
+		void put(long value) throws IOException
+		{
+			if (!buffer.hasRemaining())
+				flush();
+			buffer.putLong(value);
+		}
+
+		private void flush() throws IOException
+		{
+			buffer.flip();
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+		}
+
+		void close() throws IOException
+		{
+			try
+			{
+				flush();
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+	}
+
+	/**
+	 * Sequential reader of a run.
+	 */
+	private static class RunReader
+	{
+		private final FileInputStream in;
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER);
+		long current;
+
+		RunReader(File file) throws IOException
+		{
+			in = new FileInputStream(file);
+			channel = in.getChannel();
+			buffer.limit(0);
+		}
+
+		/**
+		 * Reads the next value into {@link #current},
+		 * or {@link ExternalGraphBuilder#END} at the end.
+		 */
+		void advance() throws IOException
+		{
+			if (!buffer.hasRemaining())
+			{
+				buffer.clear();
+				while (buffer.position() < buffer.capacity() && channel.read(buffer) > 0);
+				buffer.flip();
+				if (!buffer.hasRemaining())
+				{
+					current = END;
+					return;
+				}
+			}
+			current = buffer.getLong();
+		}
+
+		void close() throws IOException
+		{
+			in.close();
+		}
+	}
+
+	/**
+	 * K-way merge of sorted runs, using a binary heap of
+	 * readers ordered by their current value.
+	 */
+	private static class Merger
+	{
+		private final RunReader[] heap;
+		private int size = 0;
+
+		Merger(List<File> files) throws IOException
+		{
+			heap = new RunReader[files.size()];
+			try
+			{
+				for (File file: files)
+				{
+					RunReader reader = new RunReader(file);
+					heap[size++] = reader;
+					reader.advance();
+				}
+			}
+			catch (IOException e)
+			{
+				close();
+				throw e;
+			}
+			for (int k = size / 2 - 1; k >= 0; k--)
+				siftDown(k);
+		}
+
+		/**
+		 * Returns the smallest remaining value, or
+		 * {@link ExternalGraphBuilder#END} at the end.
+		 */
+		long next() throws IOException
+		{
+			if (size == 0)
+				return END;
+			RunReader top = heap[0];
+			long result = top.current;
+			if (result == END)
+				return END;
+			top.advance();
+			siftDown(0);
+			return result;
+		}
+
+		private void siftDown(int k)
+		{
+			RunReader reader = heap[k];
+			while (2 * k + 1 < size)
+			{
+				int child = 2 * k + 1;
+				if (child + 1 < size && heap[child + 1].current < heap[child].current)
+					child++;
+				if (heap[child].current >= reader.current)
+					break;
+				heap[k] = heap[child];
+				k = child;
+			}
+			heap[k] = reader;
+		}
+
+		void close() throws IOException
+		{
+			for (int k = 0; k < size; k++)
+				heap[k].close();
+		}
+	}
+
+	/**
+	 * Writes one view, receiving its links sorted by node.
+	 */
+	private static class CsrWriter
+	{
+		private final int nodeNumber;
+		private final FileOutputStream offsetOut;
+		private final FileOutputStream linkOut;
+		private final ByteBuffer offsets = ByteBuffer.allocate(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+		private final ByteBuffer links = ByteBuffer.allocate(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+		private int node = 0;				// next node whose offset must be written
+		long size = 0;						// links written so far
+		int maxDegree = 0;
+		private long nodeStart = 0;			// offset of the last node written
+
+		CsrWriter(String prefix, int nodeNumber) throws IOException
+		{
+			this.nodeNumber = nodeNumber;
+			offsetOut = new FileOutputStream(prefix + ".off");
+			linkOut = new FileOutputStream(prefix + ".adj");
+		}
+
+		void add(long pair) throws IOException
+		{
+			int key = (int)(pair >>> 32);
+			closeNodes(key);
+			if (!links.hasRemaining())
+				flush(links, linkOut);
+			links.putInt((int)pair);
+			size++;
+		}
+
+		/**
+		 * Writes the offsets of all the nodes before {@code key}.
+		 */
+		private void closeNodes(int key) throws IOException
+		{
+			while (node <= key)
+			{
+				if (node > 0 && size - nodeStart > maxDegree)
+					maxDegree = (int)(size - nodeStart);
+				if (!offsets.hasRemaining())
+					flush(offsets, offsetOut);
+				offsets.putLong(size);
+				nodeStart = size;
+				node++;
+			}
+		}
+
+		void finish() throws IOException
+		{
+			closeNodes(nodeNumber);
+			flush(offsets, offsetOut);
+			flush(links, linkOut);
+		}
+
+		private static void flush(ByteBuffer buffer, FileOutputStream out) throws IOException
+		{
+			buffer.flip();
+			FileChannel channel = out.getChannel();
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+		}
+
+		void close() throws IOException
+		{
+			try
+			{
+				offsetOut.close();
+			}
+			finally
+			{
+				linkOut.close();
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		String folder = null;
+		String tempFolder = null;
+		long memory = 256L << 20;
+		for (int a = 1; a < args.length; a++)
+		{
+			if (args[a].equals("-out"))
+				folder = args[++a];
+			else if (args[a].equals("-tmp"))
+				tempFolder = args[++a];
+			else if (args[a].equals("-memory"))
+				memory = Long.parseLong(args[++a]);
+			else
+				throw new IllegalArgumentException("Unknown option " + args[a]);
+		}
+		File file = new File(args[0]);
+		if (folder == null)
+			folder = file.getAbsoluteFile().getParent();
+		if (tempFolder == null)
+			tempFolder = folder;
+
+		ExternalGraphBuilder builder = new ExternalGraphBuilder(memory, new File(tempFolder));
+		builder.build(args[0], folder + File.separator + file.getName());
+		builder.printSummary(System.out);
+	}
+}
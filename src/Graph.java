@@ -0,0 +1,290 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Arrays;
+
+/**
+ * Graph held in memory, together with the true degree
+ * distributions the samplers are compared to.
+ * <br/>
+ * Several graphs can be loaded in the same JVM. A graph
+ * is not modified once loaded, so it can be shared by
+ * several samplers running concurrently.
+ * <br/>
+ * The input format is the same as for {@link AlbatrossSampling}:
+ * number of vertices, number of edges, then one edge per line
+ * (FromNode, EndNode), tab-separated, nodes numbered from 0
+ * (see {@link EdgeReader}).
+ */
+class Graph implements NeighborSource
+{
+	String name;
+	int[][] outLinks;					// Original Graph: out degree
+	int[][] inLinks;					// Original Graph: in degree
+	int[][] allLinks;					// Original Graph -> Undirected Graph
+	double[] percentIn;					// True Value
+	double[] percentOut;
+	int maxDegreeIn;
+	int maxDegreeOut;
+	int nodeNumber;
+	int realNodeNumber;
+	int edgeNumber;						// as announced in the file header
+	int edgeCount;						// edges actually read, self-loops excluded
+	int[] labels;						// id of each node in the file, null if not reordered
+
+	/**
+	 * Loads a graph and computes its true degree distributions.
+	 * <br/>
+	 * The undirected view keeps the order in which neighbors
+	 * first appear in the file, like {@link AlbatrossSampling},
+	 * but duplicates are removed in a single pass instead of
+	 * one {@code contains} per edge.
+	 *
+	 * @param name
+	 * 		Name used to refer to the graph.
+	 * @param filename
+	 * 		Path of the edge list.
+	 * @return
+	 * 		The loaded graph.
+	 *
+	 * @throws IOException
+	 * 		Problem while reading the file.
+	 */
+	static Graph load(String name, String filename) throws IOException
+	{
+		Graph result = new Graph();
+		result.name = name;
+		EdgeReader reader = new EdgeReader(filename);
+		try
+		{
+			result.nodeNumber = (int)reader.nodeNumber;
+			result.edgeNumber = (int)reader.edgeNumber;
+			IntList from = new IntList(Math.max(result.edgeNumber, 16));
+			IntList to = new IntList(Math.max(result.edgeNumber, 16));
+			while (reader.next())
+			{
+				if (reader.from >= result.nodeNumber || reader.to >= result.nodeNumber)
+					throw new IOException("Node id out of range on line " + reader.lineNumber + " of " + filename);
+				if (reader.from == reader.to)
+					continue;
+				from.add((int)reader.from);
+				to.add((int)reader.to);
+			}
+			result.build(from.values, to.values, from.size());
+		}
+		finally
+		{
+			reader.close();
+		}
+		return result;
+	}
+
+	/**
+	 * Builds the adjacency arrays from an edge list (self-loops
+	 * already removed), then the true distributions.
+	 */
+	void build(int[] from, int[] to, int edges)
+	{
+		edgeCount = edges;
+		int[] outDegree = new int[nodeNumber];
+		int[] inDegree = new int[nodeNumber];
+		for (int e = 0; e < edges; e++)
+		{
+			outDegree[from[e]]++;
+			inDegree[to[e]]++;
+		}
+		outLinks = new int[nodeNumber][];
+		inLinks = new int[nodeNumber][];
+		int[][] rawLinks = new int[nodeNumber][];
+		for (int v = 0; v < nodeNumber; v++)
+		{
+			outLinks[v] = new int[outDegree[v]];
+			inLinks[v] = new int[inDegree[v]];
+			rawLinks[v] = new int[outDegree[v] + inDegree[v]];
+		}
+		int[] outPos = new int[nodeNumber];
+		int[] inPos = new int[nodeNumber];
+		int[] rawPos = new int[nodeNumber];
+		for (int e = 0; e < edges; e++)
+		{
+			int f = from[e];
+			int t = to[e];
+			outLinks[f][outPos[f]++] = t;
+			inLinks[t][inPos[t]++] = f;
+			rawLinks[f][rawPos[f]++] = t;
+			rawLinks[t][rawPos[t]++] = f;
+		}
+
+		// keep only the first occurrence of each undirected neighbor
+		allLinks = new int[nodeNumber][];
+		int[] seen = new int[nodeNumber];
+		for (int v = 0; v < nodeNumber; v++)
+		{
+			int[] raw = rawLinks[v];
+			int size = 0;
+			for (int k = 0; k < raw.length; k++)
+			{
+				if (seen[raw[k]] != v + 1)
+				{
+					seen[raw[k]] = v + 1;
+					raw[size++] = raw[k];
+				}
+			}
+			allLinks[v] = size == raw.length ? raw : Arrays.copyOf(raw, size);
+			rawLinks[v] = null;
+		}
+
+		realNodeNumber = 0;
+		maxDegreeIn = 0;
+		maxDegreeOut = 0;
+		for (int v = 0; v < nodeNumber; v++)
+		{
+			if (allLinks[v].length > 0)
+				realNodeNumber++;
+			if (inDegree[v] > maxDegreeIn)
+				maxDegreeIn = inDegree[v];
+			if (outDegree[v] > maxDegreeOut)
+				maxDegreeOut = outDegree[v];
+		}
+		percentIn = distribution(inDegree, maxDegreeIn, nodeNumber, realNodeNumber);
+		percentOut = distribution(outDegree, maxDegreeOut, nodeNumber, realNodeNumber);
+	}
+
+	@Override
+	public int[] neighbors(int v)
+	{
+		return allLinks[v];
+	}
+
+	/**
+	 * Id of a node in the original file, which differs from
+	 * its id in this graph if the graph was reordered (see
+	 * {@link GraphReordering}).
+	 *
+	 * @param v
+	 * 		Node id in this graph.
+	 * @return
+	 * 		Node id in the file.
+	 */
+	int label(int v)
+	{
+		return labels == null ? v : labels[v];
+	}
+
+	/**
+	 * Cumulative degree distribution over the real nodes, computed
+	 * the same way as in {@link AlbatrossSampling}: the nodes which
+	 * appear in no edge are removed from the zero-degree class.
+	 *
+	 * @param degree
+	 * 		Degree of each node.
+	 * @param maxDegree
+	 * 		Largest value in {@code degree}.
+	 * @param nodeNumber
+	 * 		Number of nodes announced by the file.
+	 * @param realNodeNumber
+	 * 		Number of nodes appearing in at least one edge.
+	 * @return
+	 * 		The CDF, indexed by degree.
+	 */
+	static double[] distribution(int[] degree, int maxDegree, int nodeNumber, int realNodeNumber)
+	{
+		long[] histogram = new long[maxDegree + 1];
+		for (int v = 0; v < nodeNumber; v++)
+			histogram[degree[v]]++;
+		histogram[0] = histogram[0] - (nodeNumber - realNodeNumber);
+		return cumulate(histogram, realNodeNumber);
+	}
+
+	/**
+	 * Cumulative distribution from the number of real
+	 * nodes of each degree.
+	 *
+	 * @param histogram
+	 * 		Number of real nodes of each degree.
+	 * @param realNodeNumber
+	 * 		Number of real nodes.
+	 * @return
+	 * 		The CDF, indexed by degree.
+	 */
+	static double[] cumulate(long[] histogram, long realNodeNumber)
+	{
+		double[] percent = new double[histogram.length];
+		percent[0] = histogram[0] / (double)realNodeNumber;
+		for (int m = 1; m < histogram.length; m++)
+		{
+			percent[m] = histogram[m] / (double)realNodeNumber;
+			percent[m] = percent[m] + percent[m - 1];
+		}
+		return percent;
+	}
+
+	/**
+	 * Records the true in and out degree distributions,
+	 * using the same files as {@link AlbatrossSampling}.
+	 *
+	 * @param folder
+	 * 		Folder receiving the files.
+	 *
+	 * @throws FileNotFoundException
+	 * 		Problem while recording the files.
+	 */
+	void writeDistributions(String folder) throws FileNotFoundException
+	{
+		writeValues(folder + File.separator + "Original_graph_in_degree_distribution.txt", percentIn, maxDegreeIn);
+		writeValues(folder + File.separator + "Original_graph_out_degree_distribution.txt", percentOut, maxDegreeOut);
+	}
+
+	/**
+	 * Writes the first {@code number} values of an array,
+	 * one per line.
+	 */
+	static void writeValues(String filename, double[] values, int number) throws FileNotFoundException
+	{
+		FileOutputStream fileOut = new FileOutputStream(filename);
+		OutputStreamWriter writer = new OutputStreamWriter(fileOut);
+		PrintWriter pw = new PrintWriter(writer);
+		for (int m = 0; m < number; m++)
+		{
+			pw.println(Double.toString(values[m]));
+		}
+		pw.close();
+	}
+
+	/**
+	 * Rough size of a loaded graph on the heap, in bytes:
+	 * three arrays per node, and each edge stored once in
+	 * each direction plus at most twice in the undirected view.
+	 *
+	 * @param nodeNumber
+	 * 		Number of nodes.
+	 * @param edgeNumber
+	 * 		Number of edges.
+	 * @return
+	 * 		Estimated number of bytes.
+	 */
+	static long estimateFootprint(long nodeNumber, long edgeNumber)
+	{
+		return nodeNumber * 3 * 24 + edgeNumber * 16;
+	}
+
+	/**
+	 * Rough peak size while loading: the edge list and the
+	 * undirected view before deduplication come on top
+	 * of the final arrays.
+	 *
+	 * @param nodeNumber
+	 * 		Number of nodes.
+	 * @param edgeNumber
+	 * 		Number of edges.
+	 * @return
+	 * 		Estimated number of bytes.
+	 */
+	static long estimateLoadFootprint(long nodeNumber, long edgeNumber)
+	{
+		return estimateFootprint(nodeNumber, edgeNumber) + nodeNumber * (24 + 16) + edgeNumber * 16;
+	}
+}
@@ -0,0 +1,296 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Relabels the nodes of a graph so that nodes visited one after
+ * the other by a walk tend to be close in memory. The node ids of
+ * the input file are usually arbitrary, so that each step of a
+ * walk reaches an unrelated part of the heap.
+ * <br/>
+ * The reordered graph keeps the original ids as labels (see
+ * {@link Graph#label(int)}), which are used when exporting a
+ * sample. The degree distributions do not depend on the labels,
+ * so the estimations are not affected.
+ */
+class GraphReordering
+{
+	/** Number of label propagation rounds for {@link Order#COMMUNITY} */
+	private static final int PROPAGATION_ROUNDS = 10;
+
+	/**
+	 * Available orders.
+	 */
+	enum Order
+	{
+		/** By decreasing undirected degree: hubs are packed together */
+		DEGREE,
+		/** Reverse Cuthill-McKee: BFS order, neighbors by increasing degree, then reversed */
+		RCM,
+		/** Communities found by label propagation, largest first, then by decreasing degree */
+		COMMUNITY
+	}
+
+	/**
+	 * Builds a copy of a graph, with its nodes relabeled.
+	 *
+	 * @param graph
+	 * 		Original graph.
+	 * @param order
+	 * 		Order of the new ids.
+	 * @return
+	 * 		The reordered graph.
+	 */
+	static Graph reorder(Graph graph, Order order)
+	{
+		int[] oldIds;
+		switch (order)
+		{
+			case DEGREE:
+				oldIds = degreeOrder(graph);
+				break;
+			case RCM:
+				oldIds = rcmOrder(graph);
+				break;
+			default:
+				oldIds = communityOrder(graph);
+				break;
+		}
+		return relabel(graph, oldIds);
+	}
+
+	/**
+	 * Builds a copy of a graph in which node {@code oldIds[n]}
+	 * gets id {@code n}. The adjacency arrays are allocated by
+	 * increasing new id, so that they are laid out in this order
+	 * on the heap, and the neighbors keep their original order.
+	 *
+	 * @param graph
+	 * 		Original graph.
+	 * @param oldIds
+	 * 		Permutation of the node ids.
+	 * @return
+	 * 		The relabeled graph.
+	 */
+	static Graph relabel(Graph graph, int[] oldIds)
+	{
+		int nodeNumber = graph.nodeNumber;
+		int[] newIds = new int[nodeNumber];
+		for (int n = 0; n < nodeNumber; n++)
+			newIds[oldIds[n]] = n;
+
+		Graph result = new Graph();
+		result.name = graph.name;
+		result.nodeNumber = nodeNumber;
+		result.realNodeNumber = graph.realNodeNumber;
+		result.edgeNumber = graph.edgeNumber;
+		result.edgeCount = graph.edgeCount;
+		result.maxDegreeIn = graph.maxDegreeIn;
+		result.maxDegreeOut = graph.maxDegreeOut;
+		result.percentIn = graph.percentIn;
+		result.percentOut = graph.percentOut;
+		result.outLinks = new int[nodeNumber][];
+		result.inLinks = new int[nodeNumber][];
+		result.allLinks = new int[nodeNumber][];
+		result.labels = new int[nodeNumber];
+		for (int n = 0; n < nodeNumber; n++)
+		{
+			int old = oldIds[n];
+			result.labels[n] = graph.label(old);
+			result.allLinks[n] = remap(graph.allLinks[old], newIds);
+			result.outLinks[n] = remap(graph.outLinks[old], newIds);
+			result.inLinks[n] = remap(graph.inLinks[old], newIds);
+		}
+		return result;
+	}
+
+	private static int[] remap(int[] links, int[] newIds)
+	{
+		int[] result = new int[links.length];
+		for (int k = 0; k < links.length; k++)
+			result[k] = newIds[links[k]];
+		return result;
+	}
+
+	/**
+	 * Sorts the nodes by decreasing undirected degree.
+	 * Counting sort, so linear in the number of nodes.
+	 */
+	private static int[] degreeOrder(Graph graph)
+	{
+		int nodeNumber = graph.nodeNumber;
+		int maxDegree = 0;
+		for (int[] neigh: graph.allLinks)
+			maxDegree = Math.max(maxDegree, neigh.length);
+		int[] start = new int[maxDegree + 2];
+		for (int[] neigh: graph.allLinks)
+			start[maxDegree - neigh.length + 1]++;
+		for (int d = 1; d <= maxDegree + 1; d++)
+			start[d] = start[d] + start[d - 1];
+		int[] result = new int[nodeNumber];
+		for (int v = 0; v < nodeNumber; v++)
+			result[start[maxDegree - graph.allLinks[v].length]++] = v;
+		return result;
+	}
+
+	/**
+	 * Reverse Cuthill-McKee order. Each connected component is
+	 * traversed in breadth-first order, starting from its node
+	 * of lowest degree, neighbors being visited by increasing
+	 * degree. The whole order is then reversed. Nodes without
+	 * any link are put at the end.
+	 */
+	private static int[] rcmOrder(Graph graph)
+	{
+		int nodeNumber = graph.nodeNumber;
+		int[][] allLinks = graph.allLinks;
+		int[] byDegree = degreeOrder(graph);
+		int[] result = new int[nodeNumber];
+		boolean[] visited = new boolean[nodeNumber];
+		int size = 0;
+		int[] neigh = new int[16];
+		for (int s = nodeNumber - 1; s >= 0; s--)
+		{
+			int start = byDegree[s];
+			if (visited[start] || allLinks[start].length == 0)
+				continue;
+			int head = size;
+			result[size++] = start;
+			visited[start] = true;
+			while (head < size)
+			{
+				int v = result[head++];
+				int count = 0;
+				for (int w: allLinks[v])
+				{
+					if (!visited[w])
+					{
+						visited[w] = true;
+						if (count == neigh.length)
+							neigh = Arrays.copyOf(neigh, 2 * count);
+						neigh[count++] = w;
+					}
+				}
+				sortByDegree(neigh, count, allLinks);
+				System.arraycopy(neigh, 0, result, size, count);
+				size = size + count;
+			}
+		}
+		int connected = size;
+		for (int k = 0; k < connected / 2; k++)
+		{
+			int temp = result[k];
+			result[k] = result[connected - 1 - k];
+			result[connected - 1 - k] = temp;
+		}
+		for (int v = 0; v < nodeNumber; v++)
+		{
+			if (!visited[v])
+				result[size++] = v;
+		}
+		return result;
+	}
+
+	/**
+	 * Insertion sort by increasing degree: the lists are
+	 * short in most cases, and the sort is stable.
+	 */
+	private static void sortByDegree(int[] nodes, int count, int[][] allLinks)
+	{
+		for (int k = 1; k < count; k++)
+		{
+			int v = nodes[k];
+			int d = allLinks[v].length;
+			int j = k - 1;
+			while (j >= 0 && allLinks[nodes[j]].length > d)
+			{
+				nodes[j + 1] = nodes[j];
+				j--;
+			}
+			nodes[j + 1] = v;
+		}
+	}
+
+	/**
+	 * Community-based order, in the spirit of Rabbit Order and
+	 * Gorder, but much simpler: communities are detected by a few
+	 * rounds of label propagation, then placed by decreasing size,
+	 * the nodes of a community being sorted by decreasing degree.
+	 */
+	private static int[] communityOrder(Graph graph)
+	{
+		int nodeNumber = graph.nodeNumber;
+		int[][] allLinks = graph.allLinks;
+		int[] community = new int[nodeNumber];
+		for (int v = 0; v < nodeNumber; v++)
+			community[v] = v;
+
+		int[] weight = new int[nodeNumber];
+		int[] touched = new int[16];
+		int[] byDegree = degreeOrder(graph);
+		for (int round = 0; round < PROPAGATION_ROUNDS; round++)
+		{
+			int changes = 0;
+			for (int v: byDegree)
+			{
+				int[] neigh = allLinks[v];
+				if (neigh.length == 0)
+					continue;
+				if (touched.length < neigh.length)
+					touched = new int[neigh.length];
+				int count = 0;
+				int best = community[v];
+				for (int w: neigh)
+				{
+					int c = community[w];
+					if (weight[c] == 0)
+						touched[count++] = c;
+					weight[c]++;
+					if (weight[c] > weight[best] || (weight[c] == weight[best] && c < best))
+						best = c;
+				}
+				for (int k = 0; k < count; k++)
+					weight[touched[k]] = 0;
+				if (best != community[v])
+				{
+					community[v] = best;
+					changes++;
+				}
+			}
+			if (changes == 0)
+				break;
+		}
+
+		// communities by decreasing size, nodes by decreasing degree
+		int[] size = new int[nodeNumber];
+		for (int v = 0; v < nodeNumber; v++)
+			size[community[v]]++;
+		Integer[] communities = new Integer[nodeNumber];
+		int communityNumber = 0;
+		for (int c = 0; c < nodeNumber; c++)
+		{
+			if (size[c] > 0)
+				communities[communityNumber++] = c;
+		}
+		final int[] sizes = size;
+		Arrays.sort(communities, 0, communityNumber, new Comparator<Integer>()
+		{	@Override
+			public int compare(Integer c1, Integer c2)
+			{	int result = sizes[c2] - sizes[c1];
+				if (result == 0)
+					result = c1 - c2;
+				return result;
+			}
+		});
+		int[] start = new int[nodeNumber];
+		int position = 0;
+		for (int k = 0; k < communityNumber; k++)
+		{
+			start[communities[k]] = position;
+			position = position + size[communities[k]];
+		}
+		int[] result = new int[nodeNumber];
+		for (int v: byDegree)
+			result[start[community[v]]++] = v;
+		return result;
+	}
+}
@@ -0,0 +1,49 @@
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, used instead of
+ * {@code List<Integer>} wherever many values must be
+ * stored, to avoid boxing every node id.
+ */
+class IntList
+{
+	int[] values;
+	int size = 0;
+
+	IntList()
+	{
+		this(16);
+	}
+
+	IntList(int capacity)
+	{
+		values = new int[Math.max(capacity, 1)];
+	}
+
+	void add(int value)
+	{
+		if (size == values.length)
+			values = Arrays.copyOf(values, values.length * 2);
+		values[size++] = value;
+	}
+
+	int get(int index)
+	{
+		return values[index];
+	}
+
+	int size()
+	{
+		return size;
+	}
+
+	void clear()
+	{
+		size = 0;
+	}
+
+	int[] toArray()
+	{
+		return Arrays.copyOf(values, size);
+	}
+}
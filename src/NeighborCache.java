@@ -0,0 +1,382 @@
+import java.io.PrintStream;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.TreeSet;
+
+/**
+ * Keeps the neighbor lists fetched from an expensive {@link NeighborSource}
+ * (remote API, graph stored on disk), so that the nodes visited several
+ * times by a walk, typically the hubs, are fetched only once. The cache
+ * holds at most {@link #capacity} bytes, and can be shared by several
+ * samplers running at the same time.
+ * <br/>
+ * Available eviction policies (see {@link Policy}):
+ * <ul>
+ * 	<li>LRU: the least recently used list is evicted first;</li>
+ * 	<li>TINY_LFU: W-TinyLFU, i.e. a small LRU window (1% of the capacity)
+ * 	in front of a main LRU region. A list leaving the window only enters
+ * 	the main region if it was requested more often than the lists it
+ * 	would evict, according to a count-min sketch whose counters are
+ * 	halved periodically. This protects the hubs from the many nodes
+ * 	seen only once;</li>
+ * 	<li>DEGREE: the lists of the nodes of lowest degree are evicted
+ * 	first. A random walk proposes each node with a probability
+ * 	proportional to its degree, so this keeps the most requested
+ * 	lists, at no bookkeeping cost on a hit.</li>
+ * </ul>
+ * With {@link #prefetch} set, each fetched list comes with the lists
+ * of a few of its neighbors, which are the candidates of the next
+ * step. For a remote source, they would be part of the same batch
+ * request.
+ * <br/>
+ * The statistics (requests, hits, fetches, bytes held) allow to
+ * trade memory for crawl cost.
+ */
+class NeighborCache implements NeighborSource
+{
+	/**
+	 * Available eviction policies.
+	 */
+	enum Policy
+	{
+		/** Least recently used first */
+		LRU,
+		/** Window TinyLFU: LRU window, frequency-based admission to the main LRU region */
+		TINY_LFU,
+		/** Lowest degree first */
+		DEGREE
+	}
+
+	/** Estimated size of an entry, on top of its neighbor array (entry, map node, key, array header) */
+	private static final int ENTRY_OVERHEAD = 96;
+	/** Part of the capacity used by the window of {@link Policy#TINY_LFU} */
+	private static final double WINDOW_FRACTION = 0.01;
+
+	final NeighborSource source;
+	final long capacity;				// in bytes
+	final Policy policy;
+	int prefetch = 0;					// number of neighbors fetched along with a list
+
+	long requests;
+	long hits;
+	long fetches;						// lists fetched because they were requested
+	long prefetches;					// lists fetched in advance
+	long prefetchHits;					// prefetched lists requested later
+	long evictions;
+	long rejections;					// fetched lists not kept (too large, or not admitted)
+	long bytes;							// currently held
+
+	private final HashMap<Integer, Entry> entries = new HashMap<Integer, Entry>();
+	private final Segment window;
+	private final Segment main;
+	private final TreeSet<Entry> byDegree;
+	private final FrequencySketch sketch;
+
+	/**
+	 * Creates an empty cache.
+	 *
+	 * @param source
+	 * 		Source of the neighbor lists.
+	 * @param capacity
+	 * 		Maximal number of bytes held.
+	 * @param policy
+	 * 		Eviction policy.
+	 */
+	NeighborCache(NeighborSource source, long capacity, Policy policy)
+	{
+		this.source = source;
+		this.capacity = capacity;
+		this.policy = policy;
+		long windowCapacity = policy == Policy.TINY_LFU ? (long)(capacity * WINDOW_FRACTION) : 0;
+		window = new Segment(windowCapacity);
+		main = new Segment(capacity - windowCapacity);
+		byDegree = policy != Policy.DEGREE ? null : new TreeSet<Entry>(new Comparator<Entry>()
+		{	@Override
+			public int compare(Entry e1, Entry e2)
+			{	int result = e1.links.length - e2.links.length;
+				if (result == 0)
+					result = e1.node - e2.node;
+				return result;
+			}
+		});
+		sketch = policy == Policy.TINY_LFU ? new FrequencySketch(capacity / 256) : null;
+	}
+
+	@Override
+	public synchronized int[] neighbors(int v)
+	{
+		requests++;
+		if (sketch != null)
+			sketch.increment(v);
+		Entry entry = entries.get(v);
+		if (entry != null)
+		{
+			hits++;
+			if (entry.prefetched)
+			{
+				prefetchHits++;
+				entry.prefetched = false;
+			}
+			if (entry.segment != null)
+				entry.segment.moveToFront(entry);
+			return entry.links;
+		}
+
+		int[] links = source.neighbors(v);
+		fetches++;
+		insert(v, links, false);
+		if (prefetch > 0 && links.length > 0)
+		{
+			// neighbors evenly spread over the list
+			int number = Math.min(prefetch, links.length);
+			for (int k = 0; k < number; k++)
+			{
+				int w = links[(int)((long)k * links.length / number)];
+				if (!entries.containsKey(w))
+				{
+					prefetches++;
+					insert(w, source.neighbors(w), true);
+				}
+			}
+		}
+		return links;
+	}
+
+	private void insert(int v, int[] links, boolean prefetched)
+	{
+		Entry entry = new Entry(v, links, prefetched);
+		if (entry.size > main.capacity)
+		{
+			rejections++;
+			return;
+		}
+		entries.put(v, entry);
+		bytes = bytes + entry.size;
+		switch (policy)
+		{
+			case LRU:
+				main.addFirst(entry);
+				while (main.bytes > main.capacity)
+					evict(main.last());
+				break;
+			case TINY_LFU:
+				window.addFirst(entry);
+				while (window.bytes > window.capacity)
+				{
+					Entry candidate = window.last();
+					window.remove(candidate);
+					admit(candidate);
+				}
+				break;
+			case DEGREE:
+				byDegree.add(entry);
+				while (bytes > capacity)
+					evict(byDegree.first());
+				break;
+		}
+	}
+
+	/**
+	 * Moves an entry from the window to the main region of
+	 * {@link Policy#TINY_LFU}, if it is more frequent than
+	 * each of the entries it evicts.
+	 */
+	private void admit(Entry candidate)
+	{
+		int frequency = sketch.frequency(candidate.node);
+		while (main.bytes + candidate.size > main.capacity)
+		{
+			Entry victim = main.last();
+			if (frequency <= sketch.frequency(victim.node))
+			{
+				entries.remove(candidate.node);
+				bytes = bytes - candidate.size;
+				rejections++;
+				return;
+			}
+			evict(victim);
+		}
+		main.addFirst(candidate);
+	}
+
+	private void evict(Entry entry)
+	{
+		if (entry.segment != null)
+			entry.segment.remove(entry);
+		else
+			byDegree.remove(entry);
+		entries.remove(entry.node);
+		bytes = bytes - entry.size;
+		evictions++;
+	}
+
+	/**
+	 * Proportion of the requests served from the cache.
+	 *
+	 * @return
+	 * 		The hit rate, between 0 and 1.
+	 */
+	synchronized double hitRate()
+	{
+		return requests == 0 ? 0 : hits / (double)requests;
+	}
+
+	/**
+	 * Number of fetches avoided thanks to the cache, i.e. requests
+	 * minus actual fetches. Useless prefetches make it decrease.
+	 *
+	 * @return
+	 * 		The number of saved fetches.
+	 */
+	synchronized long savedFetches()
+	{
+		return requests - fetches - prefetches;
+	}
+
+	/**
+	 * Displays the statistics of the cache.
+	 *
+	 * @param out
+	 * 		Stream receiving the text.
+	 * @param prefix
+	 * 		Prefix of each line (e.g. name of the sampling process).
+	 */
+	synchronized void printStatistics(PrintStream out, String prefix)
+	{
+		out.println(prefix + ": Cache Policy = " + policy + (prefetch > 0 ? " (prefetch " + prefetch + ")" : ""));
+		out.println(prefix + ": Cache Hit Rate = " + hitRate() + " (" + hits + "/" + requests + ")");
+		out.println(prefix + ": Cache Bytes Held = " + bytes + "/" + capacity + " (" + entries.size() + " lists)");
+		out.println(prefix + ": Cache Fetches = " + fetches + " + " + prefetches + " prefetched (" + prefetchHits + " used)");
+		out.println(prefix + ": Cache Saved Fetches = " + savedFetches());
+		out.println(prefix + ": Cache Evictions = " + evictions + " (+ " + rejections + " rejected)");
+	}
+
+	/**
+	 * Cached neighbor list.
+	 */
+	private static class Entry
+	{
+		final int node;
+		final int[] links;
+		final long size;
+		boolean prefetched;
+		Segment segment;				// null with the DEGREE policy
+		Entry previous;
+		Entry next;
+
+		Entry(int node, int[] links, boolean prefetched)
+		{
+			this.node = node;
+			this.links = links;
+			this.prefetched = prefetched;
+			size = ENTRY_OVERHEAD + 4L * links.length;
+		}
+	}
+
+	/**
+	 * Entries ordered from the most to the least recently used
+	 * (doubly linked list around a sentinel).
+	 */
+	private static class Segment
+	{
+		final long capacity;
+		long bytes;
+		private final Entry head = new Entry(-1, new int[0], false);
+
+		Segment(long capacity)
+		{
+			this.capacity = capacity;
+			head.previous = head;
+			head.next = head;
+		}
+
+		void addFirst(Entry entry)
+		{
+			entry.segment = this;
+			entry.previous = head;
+			entry.next = head.next;
+			head.next.previous = entry;
+			head.next = entry;
+			bytes = bytes + entry.size;
+		}
+
+		void remove(Entry entry)
+		{
+			entry.previous.next = entry.next;
+			entry.next.previous = entry.previous;
+			entry.segment = null;
+			bytes = bytes - entry.size;
+		}
+
+		void moveToFront(Entry entry)
+		{
+			remove(entry);
+			addFirst(entry);
+		}
+
+		Entry last()
+		{
+			return head.previous;
+		}
+	}
+
+	/**
+	 * Count-min sketch of the request frequencies, with 4 rows of
+	 * counters saturating at 15. All the counters are halved every
+	 * 10 increments per column, so that old requests are forgotten.
+	 */
+	private static class FrequencySketch
+	{
+		private static final int ROWS = 4;
+		private static final int MAX_COUNT = 15;
+		private final byte[] counters;
+		private final int mask;
+		private final int resetPeriod;
+		private int additions;
+
+		FrequencySketch(long width)
+		{
+			int size = Integer.highestOneBit((int)Math.max(1 << 10, Math.min(1 << 24, width)));
+			counters = new byte[ROWS * size];
+			mask = size - 1;
+			resetPeriod = 10 * size;
+		}
+
+		void increment(int v)
+		{
+			boolean added = false;
+			for (int r = 0; r < ROWS; r++)
+			{
+				int index = index(v, r);
+				if (counters[index] < MAX_COUNT)
+				{
+					counters[index]++;
+					added = true;
+				}
+			}
+			if (added && ++additions == resetPeriod)
+			{
+				for (int k = 0; k < counters.length; k++)
+					counters[k] = (byte)(counters[k] >> 1);
+				additions = additions / 2;
+			}
+		}
+
+		int frequency(int v)
+		{
+			int result = MAX_COUNT;
+			for (int r = 0; r < ROWS; r++)
+				result = Math.min(result, counters[index(v, r)]);
+			return result;
+		}
+
+		private int index(int v, int row)
+		{
+			long z = (v + (row + 1) * 0x9E3779B97F4A7C15L);
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			z = z ^ (z >>> 31);
+			return row * (mask + 1) + ((int)z & mask);
+		}
+	}
+}
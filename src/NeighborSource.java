@@ -0,0 +1,19 @@
+/**
+ * Provides the neighbors of the nodes to a {@link Sampler}. The
+ * default source is the {@link Graph} itself, but the neighbors
+ * could as well come from a remote API or from a graph stored on
+ * disk, in which case each call is expensive (see {@link NeighborCache}).
+ */
+interface NeighborSource
+{
+	/**
+	 * Fetches the undirected neighbors of a node. The returned
+	 * array must not be modified.
+	 *
+	 * @param v
+	 * 		Node id.
+	 * @return
+	 * 		Its neighbors (see {@link Graph#allLinks}).
+	 */
+	int[] neighbors(int v);
+}
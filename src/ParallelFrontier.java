@@ -0,0 +1,375 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Frontier of a level-synchronous breadth-first search on the
+ * undirected view of a graph, expanded in parallel.
+ * <br/>
+ * The visited nodes are kept in an atomic bitmap, and the frontier
+ * in a plain int array. Each level is expanded either top-down
+ * (the frontier nodes claim their unvisited neighbors) or bottom-up
+ * (the unvisited nodes look for a neighbor in the frontier),
+ * depending on which one is expected to scan fewer edges, as
+ * proposed by Beamer et al. (direction-optimizing BFS).
+ * <br/>
+ * Whatever the direction and the number of threads, the nodes of
+ * a level are listed in the order of the sequential (FIFO) search:
+ * by position of their first parent in the previous level, then by
+ * position in the neighbors of this parent. Once the next level is
+ * known, each of its nodes records its first parent (an atomic min),
+ * then only this parent lists it. A level cut by the budget thus
+ * holds the same nodes as with the sequential BFS, and a seeded
+ * sampling process gives the same estimation.
+ */
+class ParallelFrontier
+{
+	/** Switch to bottom-up when the frontier edges exceed the unexplored edges divided by this */
+	private static final int ALPHA = 14;
+	/** Switch back to top-down when the frontier has fewer nodes than all nodes divided by this */
+	private static final int BETA = 24;
+	/** Below this number of nodes to scan, a level is expanded by the calling thread */
+	private static final int SEQUENTIAL_THRESHOLD = 4096;
+	/** First parent of a node which is not in the next level */
+	private static final int NONE = Integer.MAX_VALUE;
+	/** First parent of a node found bottom-up, not yet known */
+	private static final int FOUND = Integer.MAX_VALUE - 1;
+
+	final int[][] allLinks;
+	final int nodeNumber;
+	final int threads;
+	private final ExecutorService pool;
+	private final long totalEdges;
+
+	private final AtomicLongArray visited;
+	private final long[] frontierBits;
+	private final AtomicIntegerArray firstParent;
+	int[] nodes;							// current level
+	int size;
+	private long unexploredEdges;
+	private boolean bottomUp;
+	int topDownLevels;
+	int bottomUpLevels;
+
+	/**
+	 * Creates the frontier and its worker threads.
+	 *
+	 * @param allLinks
+	 * 		Undirected view of the graph.
+	 * @param threads
+	 * 		Number of threads used to expand a level.
+	 */
+	ParallelFrontier(int[][] allLinks, int threads)
+	{
+		this.allLinks = allLinks;
+		this.nodeNumber = allLinks.length;
+		this.threads = threads;
+		pool = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+		long edges = 0;
+		for (int[] neigh: allLinks)
+			edges = edges + neigh.length;
+		totalEdges = edges;
+		visited = new AtomicLongArray((nodeNumber + 63) >>> 6);
+		frontierBits = new long[(nodeNumber + 63) >>> 6];
+		firstParent = new AtomicIntegerArray(nodeNumber);
+		for (int v = 0; v < nodeNumber; v++)
+			firstParent.set(v, NONE);
+		nodes = new int[16];
+	}
+
+	/**
+	 * Forgets all visited nodes, before a new search.
+	 * Costs one word per 64 nodes.
+	 */
+	void reset()
+	{
+		for (int k = 0; k < visited.length(); k++)
+			visited.set(k, 0L);
+		size = 0;
+		unexploredEdges = totalEdges;
+		bottomUp = false;
+	}
+
+	/**
+	 * Restarts the search from a single node.
+	 *
+	 * @param v
+	 * 		New starting node.
+	 * @param mark
+	 * 		Whether the node must be marked as visited. Like in the
+	 * 		sequential BFS, a node reached by a jump is not, and can
+	 * 		be found again from its neighbors.
+	 */
+	void restart(int v, boolean mark)
+	{
+		if (mark && claim(v))
+			unexploredEdges = unexploredEdges - allLinks[v].length;
+		nodes[0] = v;
+		size = 1;
+	}
+
+	/**
+	 * Replaces the current level by the next one.
+	 *
+	 * @throws InterruptedException
+	 * 		Interrupted while waiting for the threads.
+	 */
+	void expand() throws InterruptedException
+	{
+		long frontierEdges = 0;
+		for (int k = 0; k < size; k++)
+			frontierEdges = frontierEdges + allLinks[nodes[k]].length;
+		if (!bottomUp && frontierEdges > unexploredEdges / ALPHA)
+			bottomUp = true;
+		else if (bottomUp && size < nodeNumber / BETA)
+			bottomUp = false;
+
+		if (bottomUp)
+		{
+			bottomUpLevels++;
+			for (int k = 0; k < size; k++)
+				frontierBits[nodes[k] >>> 6] |= 1L << nodes[k];
+			List<Callable<Void>> scans = new ArrayList<Callable<Void>>();
+			int words = visited.length();
+			int chunks = chunkNumber(nodeNumber);
+			for (int c = 0; c < chunks; c++)
+				scans.add(new BottomUp((int)((long)words * c / chunks), (int)((long)words * (c + 1) / chunks)));
+			run(scans);
+			for (int k = 0; k < size; k++)
+				frontierBits[nodes[k] >>> 6] = 0L;
+		}
+		else
+			topDownLevels++;
+
+		List<Callable<Void>> parents = new ArrayList<Callable<Void>>();
+		List<Callable<Level>> tasks = new ArrayList<Callable<Level>>();
+		int chunks = chunkNumber(size);
+		for (int c = 0; c < chunks; c++)
+		{
+			int from = (int)((long)size * c / chunks);
+			int to = (int)((long)size * (c + 1) / chunks);
+			parents.add(new FirstParent(from, to));
+			tasks.add(new Collect(from, to));
+		}
+		run(parents);
+		List<Level> levels = run(tasks);
+		int total = 0;
+		for (Level level: levels)
+		{
+			total = total + level.nodes.size();
+			unexploredEdges = unexploredEdges - level.edges;
+		}
+		if (nodes.length < total)
+			nodes = new int[Math.max(total, 2 * nodes.length)];
+		size = 0;
+		for (Level level: levels)
+		{
+			System.arraycopy(level.nodes.values, 0, nodes, size, level.nodes.size());
+			size = size + level.nodes.size();
+		}
+	}
+
+	/**
+	 * Stops the worker threads.
+	 */
+	void shutdown()
+	{
+		if (pool != null)
+			pool.shutdown();
+	}
+
+	private int chunkNumber(int work)
+	{
+		if (pool == null || work < SEQUENTIAL_THRESHOLD)
+			return 1;
+		return Math.min(threads * 8, Math.max(1, work / 256));
+	}
+
+	private <T> List<T> run(List<Callable<T>> tasks) throws InterruptedException
+	{
+		List<T> result = new ArrayList<T>(tasks.size());
+		try
+		{
+			if (tasks.size() == 1)
+				result.add(tasks.get(0).call());
+			else
+			{
+				for (Future<T> future: pool.invokeAll(tasks))
+					result.add(future.get());
+			}
+		}
+		catch (InterruptedException e)
+		{
+			throw e;
+		}
+		catch (ExecutionException e)
+		{
+			throw new RuntimeException(e.getCause());
+		}
+		catch (Exception e)
+		{
+			throw new RuntimeException(e);
+		}
+		return result;
+	}
+
+	/**
+	 * Marks a node as visited.
+	 *
+	 * @param v
+	 * 		Node to mark.
+	 * @return
+	 * 		{@code true} iff this call marked the node,
+	 * 		i.e. it was not visited before.
+	 */
+	boolean claim(int v)
+	{
+		int word = v >>> 6;
+		long bit = 1L << v;
+		long old;
+		do
+		{
+			old = visited.get(word);
+			if ((old & bit) != 0)
+				return false;
+		}
+		while (!visited.compareAndSet(word, old, old | bit));
+		return true;
+	}
+
+	/**
+	 * Nodes discovered by one chunk, with the sum
+	 * of their degrees.
+	 */
+	private static class Level
+	{
+		final IntList nodes = new IntList();
+		long edges = 0;
+	}
+
+	/**
+	 * Frontier nodes {@code [from, to)} lower the first parent of
+	 * their neighbors in the next level: the unvisited ones top-down,
+	 * the ones already found bottom-up.
+	 */
+	private class FirstParent implements Callable<Void>
+	{
+		final int from;
+		final int to;
+
+		FirstParent(int from, int to)
+		{
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public Void call()
+		{
+			for (int k = from; k < to; k++)
+			{
+				for (int w: allLinks[nodes[k]])
+				{
+					if (bottomUp ? firstParent.get(w) == NONE : (visited.get(w >>> 6) & (1L << w)) != 0)
+						continue;
+					int old;
+					do
+					{
+						old = firstParent.get(w);
+						if (old <= k)
+							break;
+					}
+					while (!firstParent.compareAndSet(w, old, k));
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * Frontier nodes {@code [from, to)} list, in order, the
+	 * neighbors of which they are the first parent.
+	 */
+	private class Collect implements Callable<Level>
+	{
+		final int from;
+		final int to;
+
+		Collect(int from, int to)
+		{
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public Level call()
+		{
+			Level result = new Level();
+			for (int k = from; k < to; k++)
+			{
+				for (int w: allLinks[nodes[k]])
+				{
+					// only this thread reads k, and the reset skips the duplicate links
+					if (firstParent.get(w) == k)
+					{
+						firstParent.set(w, NONE);
+						if (!bottomUp)
+							claim(w);
+						result.nodes.add(w);
+						result.edges = result.edges + allLinks[w].length;
+					}
+				}
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Unvisited nodes of bitmap words {@code [from, to)} look for
+	 * a neighbor in the frontier, and join the next level.
+	 */
+	private class BottomUp implements Callable<Void>
+	{
+		final int from;
+		final int to;
+
+		BottomUp(int from, int to)
+		{
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public Void call()
+		{
+			for (int word = from; word < to; word++)
+			{
+				long unvisited = ~visited.get(word);
+				while (unvisited != 0)
+				{
+					int u = (word << 6) + Long.numberOfTrailingZeros(unvisited);
+					unvisited = unvisited & (unvisited - 1);
+					if (u >= nodeNumber)
+						break;
+					for (int w: allLinks[u])
+					{
+						if ((frontierBits[w >>> 6] & (1L << w)) != 0)
+						{
+							// each bitmap word belongs to a single chunk
+							claim(u);
+							firstParent.set(u, FOUND);
+							break;
+						}
+					}
+				}
+			}
+			return null;
+		}
+	}
+}
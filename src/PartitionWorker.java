@@ -0,0 +1,600 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Worker process of {@link DistributedSampling}: holds one partition
+ * of a graph, i.e. the neighbors and degrees of the nodes it owns, and
+ * moves the walkers located on these nodes.
+ * <br/>
+ * Node {@code v} belongs to partition {@code v % partitions} (hash
+ * partitioning) or to partition {@code v * partitions / nodeNumber}
+ * (range partitioning, better if the ids follow the structure of the
+ * graph, see {@link GraphReordering}). Each worker reads the whole edge
+ * list once and keeps only the edges of its nodes.
+ * <br/>
+ * A walker carries the degrees of its current node, its budget and its
+ * random generator. When it proposes a node owned by another worker, it
+ * is sent there (in a batch, at the end of the superstep), where the
+ * node is queried and the proposal accepted or rejected. The nodes are
+ * sampled where the walker stands, so each worker only holds a partial
+ * degree histogram of each walker, summed by the coordinator at the end.
+ * Each worker also holds the set of its nodes already queried by each
+ * walker, dropped when the coordinator reports the walker is over.
+ * <br/>
+ * Usage: {@code PartitionWorker [-port n]}, the port (chosen by the
+ * system by default) being displayed on the first line of the output.
+ * The worker serves one coordinator, then exits.
+ */
+class PartitionWorker
+{
+	// commands sent by the coordinator
+	static final int LOAD = 1;
+	static final int START = 2;
+	static final int STEP = 3;
+	static final int COLLECT = 4;
+	static final int QUIT = 5;
+
+	// graph partition
+	private int partition;
+	private int partitions;
+	private boolean range;
+	private long nodeNumber;
+	private long rangeStart;
+	private int[][] links;				// undirected neighbors (global ids), by local id
+	private int[] inDegree;
+	private int[] outDegree;
+	private int[] realNodes;			// local ids of the nodes having at least one link
+
+	// sampling state
+	private Sampler.Algorithm algorithm;
+	private double alpha;
+	private int jumpBudget;
+	private int sampleSize;
+	private long[] realCumulated;		// real nodes of the partitions before each one
+	private IntSet[] queried;			// per walker: local ids of the nodes already queried, null once over
+	private int[][] histogramIn;		// per walker: number of samples of each in degree
+	private int[][] histogramOut;
+
+	/**
+	 * Walker moving from worker to worker.
+	 */
+	static class Walker
+	{
+		static final byte STARTING = 0;		// will stand on a node chosen by offset
+		static final byte STANDING = 1;		// on its current node, owned by this worker
+		static final byte PROPOSING = 2;	// proposes target, owned by this worker
+		static final byte JUMPING = 3;		// jumps to the node chosen by offset
+
+		int id;								// number of the repetition
+		long random;						// state of the generator (SplitMix64)
+		int i;								// budget spent
+		byte state;
+		int node;							// current node and its degrees
+		int degree;
+		int inDegree;
+		int outDegree;
+		long target;						// proposed node, or offset of the jump among the real nodes of the partition
+		double p;							// MH draw of the proposal
+
+		long nextLong()
+		{
+			random = random + 0x9E3779B97F4A7C15L;
+			long z = random;
+			z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+			z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+			return z ^ (z >>> 31);
+		}
+
+		int nextInt(int bound)
+		{
+			return (int)(((nextLong() >>> 32) * bound) >>> 32);
+		}
+
+		double nextDouble()
+		{
+			return (nextLong() >>> 11) * 0x1.0p-53;
+		}
+
+		void write(DataOutputStream out) throws IOException
+		{
+			out.writeInt(id);
+			out.writeLong(random);
+			out.writeInt(i);
+			out.writeByte(state);
+			out.writeInt(node);
+			out.writeInt(degree);
+			out.writeInt(inDegree);
+			out.writeInt(outDegree);
+			out.writeLong(target);
+			out.writeDouble(p);
+		}
+
+		static Walker read(DataInputStream in) throws IOException
+		{
+			Walker result = new Walker();
+			result.id = in.readInt();
+			result.random = in.readLong();
+			result.i = in.readInt();
+			result.state = in.readByte();
+			result.node = in.readInt();
+			result.degree = in.readInt();
+			result.inDegree = in.readInt();
+			result.outDegree = in.readInt();
+			result.target = in.readLong();
+			result.p = in.readDouble();
+			return result;
+		}
+	}
+
+	/**
+	 * Partition owning a node.
+	 *
+	 * @param v
+	 * 		Node id.
+	 * @param partitions
+	 * 		Number of partitions.
+	 * @param range
+	 * 		Whether the graph is range-partitioned.
+	 * @param nodeNumber
+	 * 		Number of nodes of the graph.
+	 * @return
+	 * 		The partition.
+	 */
+	static int owner(long v, int partitions, boolean range, long nodeNumber)
+	{
+		if (range)
+			return (int)(v * partitions / nodeNumber);
+		return (int)(v % partitions);
+	}
+
+	private int local(long v)
+	{
+		return (int)(range ? v - rangeStart : v / partitions);
+	}
+
+	private long global(int local)
+	{
+		return range ? rangeStart + local : (long)local * partitions + partition;
+	}
+
+	/**
+	 * Loads the partition: the edge list is read twice, first
+	 * to count the links of the local nodes, then to store them.
+	 */
+	private void load(String filename) throws IOException
+	{
+		EdgeReader reader = new EdgeReader(filename);
+		nodeNumber = reader.nodeNumber;
+		int localNumber;
+		if (range)
+		{
+			rangeStart = (partition * nodeNumber + partitions - 1) / partitions;
+			long rangeEnd = ((partition + 1) * nodeNumber + partitions - 1) / partitions;
+			localNumber = (int)(rangeEnd - rangeStart);
+		}
+		else
+			localNumber = (int)((nodeNumber - partition + partitions - 1) / partitions);
+		inDegree = new int[localNumber];
+		outDegree = new int[localNumber];
+		try
+		{
+			while (reader.next())
+			{	// checked once, the second pass reads the same file
+				if (reader.from >= nodeNumber || reader.to >= nodeNumber)
+					throw new IOException("Node id out of range on line " + reader.lineNumber + " of " + filename);
+				if (reader.from == reader.to)
+					continue;
+				if (owner(reader.from, partitions, range, nodeNumber) == partition)
+					outDegree[local(reader.from)]++;
+				if (owner(reader.to, partitions, range, nodeNumber) == partition)
+					inDegree[local(reader.to)]++;
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		links = new int[localNumber][];
+		for (int v = 0; v < localNumber; v++)
+			links[v] = new int[inDegree[v] + outDegree[v]];
+		int[] position = new int[localNumber];
+		reader = new EdgeReader(filename);
+		try
+		{
+			while (reader.next())
+			{
+				if (reader.from == reader.to)
+					continue;
+				if (owner(reader.from, partitions, range, nodeNumber) == partition)
+				{
+					int v = local(reader.from);
+					links[v][position[v]++] = (int)reader.to;
+				}
+				if (owner(reader.to, partitions, range, nodeNumber) == partition)
+				{
+					int v = local(reader.to);
+					links[v][position[v]++] = (int)reader.from;
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		// remove the duplicates of the undirected view
+		int realNumber = 0;
+		for (int v = 0; v < localNumber; v++)
+		{
+			int[] raw = links[v];
+			Arrays.sort(raw);
+			int size = 0;
+			for (int k = 0; k < raw.length; k++)
+			{
+				if (k == 0 || raw[k] != raw[k - 1])
+					raw[size++] = raw[k];
+			}
+			if (size < raw.length)
+				links[v] = Arrays.copyOf(raw, size);
+			if (size > 0)
+				realNumber++;
+		}
+		realNodes = new int[realNumber];
+		realNumber = 0;
+		for (int v = 0; v < localNumber; v++)
+		{
+			if (links[v].length > 0)
+				realNodes[realNumber++] = v;
+		}
+	}
+
+	/**
+	 * Moves a walker until it is over, or must go to another worker.
+	 *
+	 * @return
+	 * 		The partition the walker must go to, or -1 if it is over.
+	 */
+	private int move(Walker walker)
+	{
+		while (true)
+		{
+			switch (walker.state)
+			{
+				case Walker.STARTING:
+				case Walker.JUMPING:
+				{
+					int v = realNodes[(int)walker.target];
+					walker.node = (int)global(v);
+					walker.degree = links[v].length;
+					walker.inDegree = inDegree[v];
+					walker.outDegree = outDegree[v];
+					if (walker.state == Walker.JUMPING)
+					{
+						if (query(walker, v))
+							walker.i = walker.i + jumpBudget;
+						sample(walker);
+						if (walker.i >= sampleSize)
+							return -1;
+					}
+					walker.state = Walker.STANDING;
+					break;
+				}
+				case Walker.PROPOSING:
+				{
+					int w = local(walker.target);
+					if (query(walker, w))
+						walker.i++;
+					if (walker.p <= (double)walker.degree / (double)links[w].length)
+					{
+						walker.node = (int)walker.target;
+						walker.degree = links[w].length;
+						walker.inDegree = inDegree[w];
+						walker.outDegree = outDegree[w];
+					}
+					sample(walker);
+					if (walker.i >= sampleSize)
+						return -1;
+					walker.state = Walker.STANDING;
+					int owner = owner(walker.node, partitions, range, nodeNumber);
+					if (owner != partition)
+						return owner;
+					break;
+				}
+				default:
+				{
+					if (algorithm == Sampler.Algorithm.AS && walker.nextDouble() < alpha)
+					{
+						int owner = jump(walker, realCumulated);
+						walker.state = Walker.JUMPING;
+						if (owner != partition)
+							return owner;
+						break;
+					}
+					int[] neigh = links[local(walker.node)];
+					walker.target = neigh[walker.nextInt(neigh.length)];
+					walker.p = walker.nextDouble();
+					walker.state = Walker.PROPOSING;
+					int owner = owner(walker.target, partitions, range, nodeNumber);
+					if (owner != partition)
+						return owner;
+					break;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Chooses the destination of a jump uniformly among the
+	 * real nodes of the graph: the partition is chosen with a
+	 * probability proportional to its number of real nodes. The
+	 * position of the destination among the real nodes of this
+	 * partition is stored in {@link Walker#target}.
+	 *
+	 * @param walker
+	 * 		Jumping walker.
+	 * @param realCumulated
+	 * 		Number of real nodes in the partitions before each
+	 * 		partition, plus the total at the end.
+	 * @return
+	 * 		The partition owning the destination.
+	 */
+	static int jump(Walker walker, long[] realCumulated)
+	{
+		int partitions = realCumulated.length - 1;
+		long total = realCumulated[partitions];
+		if (total == 0)
+			throw new IllegalArgumentException("The graph has no link, there is no node to jump to");
+		long r = (walker.nextLong() >>> 1) % total;
+		int owner = Arrays.binarySearch(realCumulated, r);
+		if (owner < 0)
+			owner = -owner - 2;
+		else
+		{	// skip the empty partitions
+			while (realCumulated[owner + 1] == r)
+				owner++;
+		}
+		walker.target = r - realCumulated[owner];
+		return owner;
+	}
+
+	private boolean query(Walker walker, int v)
+	{
+		if (queried[walker.id] == null)
+			queried[walker.id] = new IntSet();
+		return queried[walker.id].add(v);
+	}
+
+	private void sample(Walker walker)
+	{
+		histogramIn[walker.id] = increment(histogramIn[walker.id], walker.inDegree);
+		histogramOut[walker.id] = increment(histogramOut[walker.id], walker.outDegree);
+	}
+
+	private static int[] increment(int[] histogram, int degree)
+	{
+		if (histogram.length <= degree)
+			histogram = Arrays.copyOf(histogram, Math.max(degree + 1, 2 * histogram.length));
+		histogram[degree]++;
+		return histogram;
+	}
+
+	/**
+	 * Serves the commands of a coordinator.
+	 *
+	 * @param in
+	 * 		Stream receiving the commands.
+	 * @param out
+	 * 		Stream receiving the answers.
+	 *
+	 * @throws IOException
+	 * 		Problem while communicating, or reading the graph.
+	 */
+	void serve(DataInputStream in, DataOutputStream out) throws IOException
+	{
+		int command;
+		while ((command = in.readInt()) != QUIT)
+		{
+			switch (command)
+			{
+				case LOAD:
+				{
+					String filename = in.readUTF();
+					partition = in.readInt();
+					partitions = in.readInt();
+					range = in.readBoolean();
+					load(filename);
+					int maxIn = 0;
+					int maxOut = 0;
+					long edges = 0;
+					for (int v = 0; v < links.length; v++)
+					{
+						maxIn = Math.max(maxIn, inDegree[v]);
+						maxOut = Math.max(maxOut, outDegree[v]);
+						edges = edges + outDegree[v];
+					}
+					long[] nodesIn = new long[maxIn + 1];
+					long[] nodesOut = new long[maxOut + 1];
+					for (int v: realNodes)
+					{
+						nodesIn[inDegree[v]]++;
+						nodesOut[outDegree[v]]++;
+					}
+					out.writeLong(nodeNumber);
+					out.writeLong(realNodes.length);
+					out.writeLong(edges);
+					writeHistogram(out, nodesIn);
+					writeHistogram(out, nodesOut);
+					break;
+				}
+				case START:
+				{
+					algorithm = Sampler.Algorithm.valueOf(in.readUTF());
+					alpha = in.readDouble();
+					jumpBudget = in.readInt();
+					sampleSize = in.readInt();
+					int simulation = in.readInt();
+					realCumulated = new long[partitions + 1];
+					for (int p = 0; p <= partitions; p++)
+						realCumulated[p] = in.readLong();
+					queried = new IntSet[simulation];
+					histogramIn = new int[simulation][];
+					histogramOut = new int[simulation][];
+					for (int w = 0; w < simulation; w++)
+					{
+						histogramIn[w] = new int[16];
+						histogramOut[w] = new int[16];
+					}
+					break;
+				}
+				case STEP:
+				{	// walkers over during the previous superstep, then walkers to move
+					int number = in.readInt();
+					for (int k = 0; k < number; k++)
+						queried[in.readInt()] = null;
+					number = in.readInt();
+					List<List<Walker>> outgoing = new ArrayList<List<Walker>>();
+					for (int p = 0; p < partitions; p++)
+						outgoing.add(new ArrayList<Walker>());
+					IntList finished = new IntList();
+					for (int k = 0; k < number; k++)
+					{
+						Walker walker = Walker.read(in);
+						int destination = move(walker);
+						if (destination < 0)
+						{
+							finished.add(walker.id);
+							queried[walker.id] = null;
+						}
+						else
+							outgoing.get(destination).add(walker);
+					}
+					out.writeInt(finished.size());
+					for (int k = 0; k < finished.size(); k++)
+						out.writeInt(finished.get(k));
+					for (List<Walker> walkers: outgoing)
+					{
+						out.writeInt(walkers.size());
+						for (Walker walker: walkers)
+							walker.write(out);
+					}
+					break;
+				}
+				case COLLECT:
+				{
+					int id = in.readInt();
+					writeHistogram(out, histogramIn[id]);
+					writeHistogram(out, histogramOut[id]);
+					break;
+				}
+				default:
+					throw new IOException("Unknown command " + command);
+			}
+			out.flush();
+		}
+	}
+
+	/**
+	 * Writes the non-zero counts of a histogram,
+	 * as pairs (degree, count).
+	 */
+	static void writeHistogram(DataOutputStream out, long[] histogram) throws IOException
+	{
+		int number = 0;
+		for (long count: histogram)
+		{
+			if (count != 0)
+				number++;
+		}
+		out.writeInt(number);
+		for (int m = 0; m < histogram.length; m++)
+		{
+			if (histogram[m] != 0)
+			{
+				out.writeInt(m);
+				out.writeLong(histogram[m]);
+			}
+		}
+	}
+
+	private static void writeHistogram(DataOutputStream out, int[] histogram) throws IOException
+	{
+		long[] values = new long[histogram.length];
+		for (int m = 0; m < histogram.length; m++)
+			values[m] = histogram[m];
+		writeHistogram(out, values);
+	}
+
+	/**
+	 * Open-addressing set of non-negative ints, holding the
+	 * local nodes already queried by a walker.
+	 */
+	private static class IntSet
+	{
+		private int[] keys = new int[1 << 6];			// value + 1, 0 for an empty slot
+		private int size;
+
+		boolean add(int value)
+		{
+			int mask = keys.length - 1;
+			int s = (int)((value + 1) * 0x9E3779B97F4A7C15L >>> 32) & mask;
+			while (keys[s] != 0)
+			{
+				if (keys[s] == value + 1)
+					return false;
+				s = (s + 1) & mask;
+			}
+			keys[s] = value + 1;
+			size++;
+			if (2 * size > keys.length)
+			{
+				int[] old = keys;
+				keys = new int[2 * old.length];
+				size = 0;
+				for (int key: old)
+				{
+					if (key != 0)
+						add(key - 1);
+				}
+			}
+			return true;
+		}
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		int port = 0;
+		for (int a = 0; a < args.length; a++)
+		{
+			if (args[a].equals("-port"))
+				port = Integer.parseInt(args[++a]);
+			else
+				throw new IllegalArgumentException("Unknown option " + args[a]);
+		}
+		ServerSocket server = new ServerSocket(port, 1, InetAddress.getLoopbackAddress());
+		System.out.println(server.getLocalPort());
+		System.out.flush();
+		Socket socket = server.accept();
+		server.close();
+		try
+		{
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+			new PartitionWorker().serve(in, out);
+		}
+		finally
+		{
+			socket.close();
+		}
+	}
+}
@@ -0,0 +1,207 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records all the results of a {@link Sampler} in a single binary
+ * file, instead of one text file per distribution with one value
+ * per line. The file can be read from R with {@code script/read-results.R}.
+ * <br/>
+ * Layout, all numbers being little-endian, and each string being
+ * stored as an int32 number of bytes followed by its UTF-8 bytes:
+ * <ul>
+ * 	<li>magic number {@code "ASRF"} (4 bytes), then int32 format version;</li>
+ * 	<li>int32 number of metadata entries, then for each entry its name
+ * 	and its value, both as strings (graph, algorithm, budget, seed, etc.);</li>
+ * 	<li>int32 number of columns, then for each column its name, an int32
+ * 	type and an int32 length (number of values once decoded), followed by:
+ * 	<ul>
+ * 		<li>type 1 (step column of float64, indexed by degree): int32
+ * 		number {@code k} of change points, the {@code k} int32 degrees
+ * 		at which the value changes (the first one is always 0), then the
+ * 		{@code k} float64 values. The value of a degree is the one of
+ * 		the last change point not after it. A CDF only changes at the
+ * 		degrees carried by some node, so most buckets take no space;</li>
+ * 		<li>type 2 (int32 column, e.g. one value per repetition): the
+ * 		{@code length} int32 values.</li>
+ * 	</ul></li>
+ * </ul>
+ * Unlike the text files, the degree columns go up to the maximal degree
+ * included. Columns: {@code true_in_cdf}, {@code true_out_cdf},
+ * {@code in_cdf}, {@code out_cdf}, {@code in_nmse}, {@code out_nmse},
+ * {@code mixing_time_in}, {@code mixing_time_out}, {@code sample_number},
+ * and the same columns but the true CDF for each intermediate budget,
+ * prefixed with its fraction (e.g. {@code 0.01/in_cdf}).
+ */
+class ResultFile
+{
+	private static final byte[] MAGIC = {'A', 'S', 'R', 'F'};
+	private static final int VERSION = 2;
+	private static final int STEP_COLUMN = 1;
+	private static final int INT_COLUMN = 2;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+
+	/**
+	 * Records the results of a sampler, once it has run.
+	 *
+	 * @param sampler
+	 * 		Sampler whose results are recorded.
+	 * @param file
+	 * 		File to create.
+	 *
+	 * @throws IOException
+	 * 		Problem while recording the file.
+	 */
+	static void write(Sampler sampler, File file) throws IOException
+	{
+		Graph graph = sampler.graph;
+		BudgetSnapshots snapshots = sampler.snapshots;
+		ResultFile result = new ResultFile();
+
+		ByteBuffer header = result.allocate(MAGIC.length + 4);
+		header.put(MAGIC);
+		header.putInt(VERSION);
+		List<String> metadata = new ArrayList<String>();
+		add(metadata, "graph", graph.name);
+		add(metadata, "algorithm", sampler.algorithm);
+		add(metadata, "simulation", sampler.simulation);
+		add(metadata, "budget", sampler.sampleSize);
+		add(metadata, "alpha", sampler.alpha);
+		add(metadata, "jump_budget", sampler.jumpBudget);
+		add(metadata, "seed", sampler.seed);
+		add(metadata, "node_number", graph.nodeNumber);
+		add(metadata, "real_node_number", graph.realNodeNumber);
+		add(metadata, "edge_number", graph.edgeCount);
+		add(metadata, "total_sample", sampler.totalSample);
+		add(metadata, "average_mixing_time_in", sampler.averageMixingTime(sampler.mixingTimeIn));
+		add(metadata, "average_mixing_time_out", sampler.averageMixingTime(sampler.mixingTimeOut));
+		WalkStatistics statistics = sampler.statistics;
+		add(metadata, "average_in_degree", statistics.averageDegreeIn());
+		add(metadata, "average_out_degree", statistics.averageDegreeOut());
+		add(metadata, "average_degree", statistics.averageDegree());
+		if (statistics.hasProposals())
+		{
+			add(metadata, "average_local_transitivity", statistics.averageClustering());
+			add(metadata, "global_transitivity", statistics.transitivity());
+			add(metadata, "degree_assortativity", statistics.assortativity());
+		}
+		if (snapshots != null)
+		{
+			StringBuilder fractions = new StringBuilder();
+			for (int b = 0; b < snapshots.fractions.length; b++)
+				fractions.append(b == 0 ? "" : ",").append(snapshots.fractions[b]);
+			add(metadata, "budget_fractions", fractions);
+		}
+		result.allocate(4).putInt(metadata.size() / 2);
+		for (String str: metadata)
+			result.putString(str);
+
+		int columns = 9 + (snapshots == null ? 0 : 7 * snapshots.fractions.length);
+		result.allocate(4).putInt(columns);
+		result.putStep("true_in_cdf", graph.percentIn);
+		result.putStep("true_out_cdf", graph.percentOut);
+		result.putStep("in_cdf", sampler.percent1In);
+		result.putStep("out_cdf", sampler.percent1Out);
+		result.putStep("in_nmse", sampler.percent2In);
+		result.putStep("out_nmse", sampler.percent2Out);
+		result.putInts("mixing_time_in", sampler.mixingTimeIn);
+		result.putInts("mixing_time_out", sampler.mixingTimeOut);
+		result.putInts("sample_number", sampler.sampleNumbers);
+		if (snapshots != null)
+		{
+			for (int b = 0; b < snapshots.fractions.length; b++)
+			{
+				String prefix = snapshots.fractions[b] + "/";
+				result.putStep(prefix + "in_cdf", snapshots.percent1In[b]);
+				result.putStep(prefix + "out_cdf", snapshots.percent1Out[b]);
+				result.putStep(prefix + "in_nmse", snapshots.percent2In[b]);
+				result.putStep(prefix + "out_nmse", snapshots.percent2Out[b]);
+				result.putInts(prefix + "mixing_time_in", snapshots.mixingTimeIn[b]);
+				result.putInts(prefix + "mixing_time_out", snapshots.mixingTimeOut[b]);
+				result.putInts(prefix + "sample_number", snapshots.sampleNumbers[b]);
+			}
+		}
+
+		FileOutputStream out = new FileOutputStream(file);
+		try
+		{
+			FileChannel channel = out.getChannel();
+			for (ByteBuffer buffer: result.buffers)
+			{
+				buffer.flip();
+				while (buffer.hasRemaining())
+					channel.write(buffer);
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+	private static void add(List<String> metadata, String name, Object value)
+	{
+		metadata.add(name);
+		metadata.add(String.valueOf(value));
+	}
+
+	private ByteBuffer allocate(int size)
+	{
+		ByteBuffer result = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		buffers.add(result);
+		return result;
+	}
+
+	private void putString(String str)
+	{
+		byte[] bytes = str.getBytes(UTF8);
+		allocate(4 + bytes.length).putInt(bytes.length).put(bytes);
+	}
+
+	/**
+	 * Column of doubles indexed by degree, only the
+	 * degrees at which the value changes being stored.
+	 */
+	private void putStep(String name, double[] values)
+	{
+		int changes = 0;
+		for (int m = 0; m < values.length; m++)
+		{
+			if (m == 0 || Double.doubleToLongBits(values[m]) != Double.doubleToLongBits(values[m - 1]))
+				changes++;
+		}
+		putString(name);
+		ByteBuffer buffer = allocate(4 * 3 + changes * (4 + 8));
+		buffer.putInt(STEP_COLUMN);
+		buffer.putInt(values.length);
+		buffer.putInt(changes);
+		for (int m = 0; m < values.length; m++)
+		{
+			if (m == 0 || Double.doubleToLongBits(values[m]) != Double.doubleToLongBits(values[m - 1]))
+				buffer.putInt(m);
+		}
+		for (int m = 0; m < values.length; m++)
+		{
+			if (m == 0 || Double.doubleToLongBits(values[m]) != Double.doubleToLongBits(values[m - 1]))
+				buffer.putDouble(values[m]);
+		}
+	}
+
+	private void putInts(String name, int[] values)
+	{
+		putString(name);
+		ByteBuffer buffer = allocate(4 * 2 + 4 * values.length);
+		buffer.putInt(INT_COLUMN);
+		buffer.putInt(values.length);
+		for (int value: values)
+			buffer.putInt(value);
+	}
+}
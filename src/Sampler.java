@@ -0,0 +1,710 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.Random;
+
+/**
+ * Sampling processes of the original C# program (MHRW, BFS
+ * and AS), plus a parallel version of BFS and non-backtracking
+ * versions of MHRW and AS (MHDA and NBAS). The estimators
+ * and mixing times belong to the
+ * sampler, so several samplers can run at the same time,
+ * on the same {@link Graph} or on different ones.
+ * <br/>
+ * The walks are the same as in the original program. The
+ * only differences are that the already queried nodes are
+ * marked in an array instead of being searched in a list,
+ * and that each repetition draws its random numbers from
+ * its own generator, derived from {@link #seed}, so that
+ * a run can be replayed, or resumed from a {@link Checkpoint}.
+ * The walks fetch the neighbor list of a node once per visit,
+ * from the graph or from another {@link #source} (e.g. a
+ * {@link NeighborCache}).
+ */
+class Sampler
+{
+	/**
+	 * Available sampling processes.
+	 */
+	enum Algorithm
+	{
+		/** Albatross Sampling */
+		AS,
+		/** Metropolis-Hasting Random Walk */
+		MHRW,
+		/** Breadth-First Sampling */
+		BFS,
+		/** Breadth-First Sampling, levels expanded in parallel (see {@link ParallelFrontier}) */
+		PBFS,
+		/** Metropolis-Hastings with Delayed Acceptance: non-backtracking version of MHRW */
+		MHDA,
+		/** Non-Backtracking Albatross Sampling: jumps of AS, moves of MHDA */
+		NBAS
+	}
+
+	/**
+	 * Notified each time a repetition of the sampling
+	 * process is over.
+	 */
+	interface Listener
+	{
+		/**
+		 * Called right after the estimators of
+		 * repetition {@code count} have been accumulated.
+		 *
+		 * @param sampler
+		 * 		Sampler running the repetition.
+		 * @param count
+		 * 		Number of the repetition, starting from 0.
+		 */
+		void repetitionDone(Sampler sampler, int count);
+	}
+
+	final Graph graph;
+	final Algorithm algorithm;
+	int simulation = 1;					// number of repetitions of the sampling process
+	int sampleSize;						// Total-Cost
+	double alpha = 0.02;				// Jump Probability in AS
+	int jumpBudget = 10;				// Set Jump-Cost
+	long seed = new Random().nextLong();
+	boolean recordSample = false;		// keep the nodes sampled during the first repetition
+	int threads = Runtime.getRuntime().availableProcessors();	// used by PBFS only
+	File checkpointFile = null;			// null to disable checkpoints
+	int checkpointPeriod = 60;			// minimal number of seconds between two checkpoints
+	boolean resume = false;				// start from checkpointFile, if it exists
+	double[] budgetFractions = null;	// intermediate budgets recorded in snapshots, null for none
+	NeighborSource source = null;		// where the walks fetch the neighbors, null for the graph itself (not used by PBFS)
+	Listener listener = null;
+
+	double[] percent1In;				// CDF
+	double[] percent1Out;
+	double[] percent2In;				// NMSE
+	double[] percent2Out;
+	double[] percent3In;				// Each Time's Estimation
+	double[] percent3Out;
+	int[] mixingTimeIn;
+	int[] mixingTimeOut;
+	int[] sampleNumbers;				// number of sampled nodes in each repetition
+	long totalSample;
+	double avgDegree;					// out
+	double avgDegreeIn;
+	WalkStatistics statistics;			// other properties of the sampled nodes
+	IntList sampledNodes;				// first repetition only, if recordSample
+	BudgetSnapshots snapshots;			// estimations at the intermediate budgets, if any
+
+	// state of the current repetition
+	private int count;
+	private int i;
+	private int singleSample;
+	private int[] queryStamp;
+	private NeighborSource links;
+	private boolean recording;
+	private ParallelFrontier frontier;
+
+	/**
+	 * Creates a sampler using the default parameters of
+	 * {@link AlbatrossSampling}: one repetition, and a budget
+	 * of one twentieth of the real nodes.
+	 *
+	 * @param graph
+	 * 		Graph to sample.
+	 * @param algorithm
+	 * 		Sampling process.
+	 */
+	Sampler(Graph graph, Algorithm algorithm)
+	{
+		this.graph = graph;
+		this.algorithm = algorithm;
+		sampleSize = graph.realNodeNumber / 20;
+	}
+
+	/**
+	 * Runs all the repetitions, then computes the
+	 * average CDF and the NMSE.
+	 * <br/>
+	 * If {@link #checkpointFile} is set, the state of the sampler
+	 * is recorded after a repetition, once every {@link #checkpointPeriod}
+	 * seconds and after the last one. With {@link #resume}, the run
+	 * starts from the recorded state instead of the first repetition.
+	 *
+	 * @throws IOException
+	 * 		Problem while reading or writing the checkpoint.
+	 */
+	void run() throws IOException
+	{
+		int maxDegreeIn = graph.maxDegreeIn;
+		int maxDegreeOut = graph.maxDegreeOut;
+		percent1In = new double[maxDegreeIn + 1];
+		percent1Out = new double[maxDegreeOut + 1];
+		percent2In = new double[maxDegreeIn + 1];
+		percent2Out = new double[maxDegreeOut + 1];
+		percent3In = new double[maxDegreeIn + 1];
+		percent3Out = new double[maxDegreeOut + 1];
+		mixingTimeIn = new int[simulation];
+		mixingTimeOut = new int[simulation];
+		sampleNumbers = new int[simulation];
+		Arrays.fill(mixingTimeIn, sampleSize);
+		Arrays.fill(mixingTimeOut, sampleSize);
+		queryStamp = new int[graph.nodeNumber];
+		links = source == null ? graph : source;
+		totalSample = 0;
+		sampledNodes = null;
+		snapshots = null;
+		if (budgetFractions != null)
+		{
+			snapshots = new BudgetSnapshots(budgetFractions, graph, simulation);
+			if (snapshots.maxBudget() > sampleSize)
+				throw new IllegalArgumentException("Intermediate budget " + snapshots.maxBudget() + " exceeds the budget " + sampleSize);
+		}
+		statistics = new WalkStatistics(graph);
+		int first = 0;
+		if (resume && checkpointFile != null && checkpointFile.exists())
+			first = Checkpoint.restore(this, checkpointFile);
+		long lastCheckpoint = System.nanoTime();
+		if (algorithm == Algorithm.PBFS)
+			frontier = new ParallelFrontier(graph.allLinks, threads);
+
+		try
+		{
+			for (count = first; count < simulation; count++)
+			{
+				i = 0;
+				singleSample = 0;
+				Arrays.fill(percent3In, 0.0);
+				Arrays.fill(percent3Out, 0.0);
+				recording = recordSample && count == 0;
+				if (recording)
+					sampledNodes = new IntList();
+				if (snapshots != null)
+					snapshots.startRepetition();
+				Random ra = new Random(repetitionSeed(seed, count));
+				statistics.startRepetition(repetitionSeed(seed, count));
+				switch (algorithm)
+				{
+					case AS:
+						walkAS(ra);
+						break;
+					case MHRW:
+						walkMHRW(ra);
+						break;
+					case BFS:
+						walkBFS(ra);
+						break;
+					case PBFS:
+						walkParallelBFS(ra);
+						break;
+					case MHDA:
+						walkMHDA(ra, false);
+						break;
+					case NBAS:
+						walkMHDA(ra, true);
+						break;
+				}
+				totalSample = totalSample + singleSample;
+				sampleNumbers[count] = singleSample;
+
+				for (int m = 0; m <= maxDegreeIn; m++)
+				{
+					percent3In[m] = percent3In[m] / (double)singleSample;
+					percent1In[m] = percent1In[m] + percent3In[m];
+					percent2In[m] = percent2In[m] + (percent3In[m] - graph.percentIn[m]) * (percent3In[m] - graph.percentIn[m]);
+				}
+				for (int m = 0; m <= maxDegreeOut; m++)
+				{
+					percent3Out[m] = percent3Out[m] / (double)singleSample;
+					percent1Out[m] = percent1Out[m] + percent3Out[m];
+					percent2Out[m] = percent2Out[m] + (percent3Out[m] - graph.percentOut[m]) * (percent3Out[m] - graph.percentOut[m]);
+				}
+				if (listener != null)
+					listener.repetitionDone(this, count);
+				long now = System.nanoTime();
+				if (checkpointFile != null && (now - lastCheckpoint >= checkpointPeriod * 1000000000L || count == simulation - 1))
+				{
+					Checkpoint.save(this, count + 1, checkpointFile);
+					lastCheckpoint = now;
+				}
+			}
+		}
+		finally
+		{
+			if (frontier != null)
+				frontier.shutdown();
+			frontier = null;
+			queryStamp = null;
+			links = null;
+		}
+
+		avgDegree = statistics.averageDegreeOut();
+		avgDegreeIn = statistics.averageDegreeIn();
+
+		for (int m = 0; m <= maxDegreeIn; m++)
+		{
+			percent1In[m] = percent1In[m] / (double)simulation;
+			if (graph.percentIn[m] != 0)
+				percent2In[m] = Math.sqrt(percent2In[m] / (double)simulation) / graph.percentIn[m];
+			else
+				percent2In[m] = 0;
+		}
+		for (int m = 0; m <= maxDegreeOut; m++)
+		{
+			percent1Out[m] = percent1Out[m] / (double)simulation;
+			if (graph.percentOut[m] != 0)
+				percent2Out[m] = Math.sqrt(percent2Out[m] / (double)simulation) / graph.percentOut[m];
+			else
+				percent2Out[m] = 0;
+		}
+		if (snapshots != null)
+			snapshots.finish(simulation);
+	}
+
+	/**
+	 * Seed of the generator used by one repetition, obtained
+	 * by scrambling the run seed and the repetition number
+	 * (SplitMix64 finalizer), so that consecutive repetitions
+	 * do not get correlated generators.
+	 *
+	 * @param seed
+	 * 		Seed of the whole run.
+	 * @param count
+	 * 		Number of the repetition.
+	 * @return
+	 * 		Seed of the repetition.
+	 */
+	static long repetitionSeed(long seed, int count)
+	{
+		long z = seed + (count + 1) * 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	private void walkMHRW(Random ra)
+	{
+		int nodeNumber = graph.nodeNumber;
+		int v = ra.nextInt(Integer.MAX_VALUE) % nodeNumber;
+		int[] neighV = links.neighbors(v);
+		while (i < sampleSize)
+		{
+			if (neighV.length == 0)
+			{
+				v = ra.nextInt(Integer.MAX_VALUE) % nodeNumber;
+				neighV = links.neighbors(v);
+				if (query(v))
+					i++;
+				sample(v, neighV.length);
+				continue;
+			}
+			int w = neighV[ra.nextInt(neighV.length)];
+			int[] neighW = links.neighbors(w);
+			statistics.proposed(neighV, w, neighW);
+			double p = ra.nextDouble();
+			if (p <= (double)neighV.length / (double)neighW.length)
+			{
+				v = w;
+				neighV = neighW;
+			}
+			if (query(w))
+				i++;
+			sample(v, neighV.length);
+		}
+	}
+
+	private void walkBFS(Random ra)
+	{
+		int nodeNumber = graph.nodeNumber;
+		Queue<Integer> waitingNodes = new LinkedList<Integer>();
+		boolean[] waitingFlag = new boolean[graph.nodeNumber + 1];
+		boolean jumpFlag = false;
+		int v = ra.nextInt(Integer.MAX_VALUE) % nodeNumber;
+		waitingNodes.offer(v);
+		waitingFlag[v] = true;
+		while (i < sampleSize)
+		{
+			if (waitingNodes.size() > 0)
+			{
+				v = waitingNodes.poll();
+				if (query(v))
+				{
+					if (jumpFlag == false)
+						i++;
+					else
+					{
+						i = i + jumpBudget;
+						jumpFlag = false;
+					}
+				}
+				int[] neighV = links.neighbors(v);
+				for (int w: neighV)
+				{
+					if (waitingFlag[w] == false)
+					{
+						waitingNodes.offer(w);
+						waitingFlag[w] = true;
+					}
+				}
+				sample(v, neighV.length);
+			}
+			else
+			{
+				v = ra.nextInt(Integer.MAX_VALUE) % nodeNumber;
+				waitingNodes.offer(v);
+				jumpFlag = true;
+			}
+		}
+	}
+
+	/**
+	 * Same budget accounting and estimation as {@link #walkBFS(Random)},
+	 * but the search is level-synchronous: the nodes of a level are
+	 * sampled, then the next level is computed in parallel. The levels
+	 * keep the FIFO order of the sequential version, so the last,
+	 * partially sampled level and the estimation are the same.
+	 */
+	private void walkParallelBFS(Random ra)
+	{
+		int[][] allLinks = graph.allLinks;
+		boolean jumpFlag = false;
+		frontier.reset();
+		frontier.restart(ra.nextInt(Integer.MAX_VALUE) % allLinks.length, true);
+		while (i < sampleSize)
+		{
+			if (frontier.size > 0)
+			{
+				for (int k = 0; k < frontier.size && i < sampleSize; k++)
+				{
+					int v = frontier.nodes[k];
+					if (query(v))
+					{
+						if (jumpFlag == false)
+							i++;
+						else
+						{
+							i = i + jumpBudget;
+							jumpFlag = false;
+						}
+					}
+					sample(v, allLinks[v].length);
+				}
+				if (i < sampleSize)
+				{
+					try
+					{
+						frontier.expand();
+					}
+					catch (InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+						throw new IllegalStateException("Sampling interrupted", e);
+					}
+				}
+			}
+			else
+			{
+				frontier.restart(ra.nextInt(Integer.MAX_VALUE) % allLinks.length, false);
+				jumpFlag = true;
+			}
+		}
+	}
+
+	private void walkAS(Random ra)
+	{
+		int nodeNumber = graph.nodeNumber;
+		int v = ra.nextInt(Integer.MAX_VALUE) % nodeNumber;
+		int[] neighV = links.neighbors(v);
+		while (i < sampleSize)
+		{
+			double q = ra.nextDouble();
+			if (q < alpha)
+			{
+				v = ra.nextInt(Integer.MAX_VALUE) % nodeNumber;
+				neighV = links.neighbors(v);
+				if (query(v))
+					i = i + jumpBudget;
+				sample(v, neighV.length);
+				continue;
+			}
+			if (neighV.length == 0)
+			{
+				v = ra.nextInt(Integer.MAX_VALUE) % nodeNumber;
+				neighV = links.neighbors(v);
+				if (query(v))
+					i++;
+				sample(v, neighV.length);
+				continue;
+			}
+			int w = neighV[ra.nextInt(neighV.length)];
+			int[] neighW = links.neighbors(w);
+			statistics.proposed(neighV, w, neighW);
+			double p = ra.nextDouble();
+			if (p <= (double)neighV.length / (double)neighW.length)
+			{
+				v = w;
+				neighV = neighW;
+			}
+			if (query(w))
+				i++;
+			sample(v, neighV.length);
+		}
+	}
+
+	/**
+	 * Metropolis-Hastings with Delayed Acceptance (Lee, Xu and Eun,
+	 * SIGMETRICS 2012). The first stage is the step of MHRW. If it
+	 * accepts going back to the previous node, a second neighbor
+	 * is proposed instead, and accepted with probability
+	 * {@code min(1, a(w)^2 / a(u)^2)}, where {@code a(x) = min(1, deg(v)/deg(x))}
+	 * is the MH acceptance of {@code x} from the current node {@code v},
+	 * and {@code u} is the previous node. Otherwise, the walk goes back.
+	 * The stationary distribution is still uniform, but the walk
+	 * backtracks much less, so it mixes faster on clustered graphs.
+	 * <br/>
+	 * The second neighbor must be queried to get its degree, so it
+	 * is charged to the budget like the first one. With {@code jumps},
+	 * the walk also jumps like AS (NBAS), and forgets its previous
+	 * node after each jump.
+	 */
+	private void walkMHDA(Random ra, boolean jumps)
+	{
+		int nodeNumber = graph.nodeNumber;
+		int v = ra.nextInt(Integer.MAX_VALUE) % nodeNumber;
+		int[] neighV = links.neighbors(v);
+		int degreeU = 0;
+		int u = -1;							// previous node, -1 after a jump
+		while (i < sampleSize)
+		{
+			if (jumps && ra.nextDouble() < alpha)
+			{
+				v = ra.nextInt(Integer.MAX_VALUE) % nodeNumber;
+				neighV = links.neighbors(v);
+				u = -1;
+				if (query(v))
+					i = i + jumpBudget;
+				sample(v, neighV.length);
+				continue;
+			}
+			if (neighV.length == 0)
+			{
+				v = ra.nextInt(Integer.MAX_VALUE) % nodeNumber;
+				neighV = links.neighbors(v);
+				u = -1;
+				if (query(v))
+					i++;
+				sample(v, neighV.length);
+				continue;
+			}
+			int k = ra.nextInt(neighV.length);
+			int w = neighV[k];
+			int[] neighW = links.neighbors(w);
+			statistics.proposed(neighV, w, neighW);
+			double p = ra.nextDouble();
+			if (query(w))
+				i++;
+			if (p <= (double)neighV.length / (double)neighW.length)
+			{
+				if (w == u && neighV.length > 1)
+				{	// delayed acceptance: another neighbor than u
+					int r = ra.nextInt(neighV.length - 1);
+					if (r >= k)
+						r++;
+					int w2 = neighV[r];
+					int[] neighW2 = links.neighbors(w2);
+					if (query(w2))
+						i++;
+					double a = Math.min(1.0, (double)neighV.length / (double)neighW2.length);
+					double b = Math.max(1.0, (double)degreeU / (double)neighV.length);
+					if (ra.nextDouble() <= a * a * b * b)
+					{
+						w = w2;
+						neighW = neighW2;
+					}
+				}
+				u = v;
+				degreeU = neighV.length;
+				v = w;
+				neighV = neighW;
+			}
+			sample(v, neighV.length);
+		}
+	}
+
+	/**
+	 * Marks a node as queried during the current repetition.
+	 *
+	 * @param v
+	 * 		Queried node.
+	 * @return
+	 * 		{@code true} iff the node had not been queried
+	 * 		yet, i.e. the query must be charged to the budget.
+	 */
+	private boolean query(int v)
+	{
+		if (queryStamp[v] == count + 1)
+			return false;
+		queryStamp[v] = count + 1;
+		return true;
+	}
+
+	/**
+	 * Adds a node to the current estimation, and
+	 * updates the mixing times.
+	 *
+	 * @param v
+	 * 		Sampled node.
+	 * @param degree
+	 * 		Undirected degree of the node, as read by the walk.
+	 */
+	private void sample(int v, int degree)
+	{
+		singleSample++;
+		if (recording)
+			sampledNodes.add(v);
+		for (int m = graph.inLinks[v].length; m <= graph.maxDegreeIn; m++)
+		{
+			percent3In[m] = percent3In[m] + 1.0;
+		}
+		for (int m = graph.outLinks[v].length; m <= graph.maxDegreeOut; m++)
+		{
+			percent3Out[m] = percent3Out[m] + 1.0;
+		}
+		updateMixingTime(percent3In, graph.percentIn, mixingTimeIn);
+		updateMixingTime(percent3Out, graph.percentOut, mixingTimeOut);
+		if (snapshots != null)
+		{
+			int mixingIn = mixingTimeIn[count] == sampleSize ? -1 : mixingTimeIn[count];
+			int mixingOut = mixingTimeOut[count] == sampleSize ? -1 : mixingTimeOut[count];
+			snapshots.update(count, i, singleSample, percent3In, percent3Out, mixingIn, mixingOut);
+		}
+		statistics.sampled(v, degree);
+	}
+
+	/**
+	 * The walk is considered as mixed as soon as the current
+	 * estimation stays within 0.25 of the true CDF, for
+	 * every degree.
+	 */
+	private void updateMixingTime(double[] percent3, double[] percent, int[] mixingTime)
+	{
+		int maxDegree = percent.length - 1;
+		int mix;
+		for (mix = 0; mix < maxDegree + 1; mix++)
+		{
+			if (Math.abs(percent3[mix] / singleSample - percent[mix]) > 0.25)
+				break;
+		}
+		if (mix == maxDegree + 1 && mixingTime[count] == sampleSize)
+			mixingTime[count] = i;
+		else if (mix != maxDegree + 1)
+			mixingTime[count] = sampleSize;
+	}
+
+	/**
+	 * Largest gap between the estimation of the last
+	 * repetition and the true CDF (Kolmogorov-Smirnov
+	 * distance). Only meaningful from a {@link Listener}.
+	 *
+	 * @param percent3
+	 * 		{@link #percent3In} or {@link #percent3Out}.
+	 * @param percent
+	 * 		Corresponding true CDF.
+	 * @return
+	 * 		The distance.
+	 */
+	static double distance(double[] percent3, double[] percent)
+	{
+		double result = 0;
+		for (int m = 0; m < percent.length; m++)
+			result = Math.max(result, Math.abs(percent3[m] - percent[m]));
+		return result;
+	}
+
+	/**
+	 * Average over the repetitions of a series of
+	 * mixing times.
+	 *
+	 * @param mixingTime
+	 * 		{@link #mixingTimeIn} or {@link #mixingTimeOut}.
+	 * @return
+	 * 		The average mixing time.
+	 */
+	double averageMixingTime(int[] mixingTime)
+	{
+		double mix = 0.0;
+		for (int m = 0; m < simulation; m++)
+			mix = mix + mixingTime[m];
+		return mix / simulation;
+	}
+
+	/**
+	 * Records the estimated CDF and NMSE, in the same
+	 * files as {@link AlbatrossSampling}, plus those of
+	 * the intermediate budgets, if any.
+	 *
+	 * @param folder
+	 * 		Folder receiving the files.
+	 *
+	 * @throws FileNotFoundException
+	 * 		Problem while recording the files.
+	 */
+	void writeResults(String folder) throws FileNotFoundException
+	{
+		String prefix = folder + File.separator + algorithm;
+		Graph.writeValues(prefix + "_in_degree_distribution.txt", percent1In, graph.maxDegreeIn);
+		Graph.writeValues(prefix + "_out_degree_distribution.txt", percent1Out, graph.maxDegreeOut);
+		Graph.writeValues(prefix + "_in_degree_NMSE.txt", percent2In, graph.maxDegreeIn);
+		Graph.writeValues(prefix + "_out_degree_NMSE.txt", percent2Out, graph.maxDegreeOut);
+		if (snapshots != null)
+			snapshots.writeResults(folder, algorithm.toString());
+	}
+
+	/**
+	 * Displays the averages over the repetitions, in
+	 * the same way as {@link AlbatrossSampling}.
+	 *
+	 * @param out
+	 * 		Stream receiving the text.
+	 */
+	void printSummary(PrintStream out)
+	{
+		out.println(algorithm + ": Average In Degree = " + avgDegreeIn);
+		out.println(algorithm + ": Average Out Degree = " + avgDegree);
+		out.println(algorithm + ": Average Sample Number = " + totalSample / simulation);
+		out.println(algorithm + ": Average Mixing Time (In) = " + averageMixingTime(mixingTimeIn));
+		out.println(algorithm + ": Average Mixing Time (Out) = " + averageMixingTime(mixingTimeOut));
+		out.println(algorithm + ": Average Degree = " + statistics.averageDegree());
+		if (statistics.hasProposals())
+		{
+			out.println(algorithm + ": Average Local Transitivity = " + statistics.averageClustering());
+			out.println(algorithm + ": Global Transitivity = " + statistics.transitivity());
+			out.println(algorithm + ": Degree Assortativity = " + statistics.assortativity());
+		}
+		if (snapshots != null)
+			snapshots.printSummary(out, algorithm.toString(), simulation);
+	}
+
+	/**
+	 * Rough number of bytes allocated by {@link #run()},
+	 * on top of the graph itself.
+	 *
+	 * @return
+	 * 		Estimated number of bytes.
+	 */
+	long estimateFootprint()
+	{
+		long result = 8L * 6 * (graph.maxDegreeIn + graph.maxDegreeOut + 2)
+			+ 4L * 3 * simulation
+			+ 4L * graph.nodeNumber;
+		if (algorithm == Algorithm.BFS)
+			result = result + graph.nodeNumber + 24L * graph.nodeNumber;
+		else if (algorithm == Algorithm.PBFS)
+			result = result + graph.nodeNumber / 4 + 8L * graph.nodeNumber;
+		if (recordSample)
+			result = result + 8L * sampleSize;
+		if (budgetFractions != null)
+			result = result + budgetFractions.length * (8L * 4 * (graph.maxDegreeIn + graph.maxDegreeOut + 2) + 4L * 3 * simulation);
+		return result;
+	}
+}
@@ -0,0 +1,92 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the accuracy of several sampling processes on one graph,
+ * at equal budget: each one is run with the same budget, number of
+ * repetitions and seed, then its average mixing times and NMSE are
+ * displayed. The NMSE is averaged over the degrees whose true CDF is
+ * strictly between 0 and 1, and the bias is the largest gap between
+ * the average estimated CDF and the true one.
+ * <br/>
+ * Usage: {@code SamplerComparison graph-file [-algo MHRW,MHDA,AS,NBAS]
+ * [-budget n] [-repetitions n] [-seed n] [-alpha x] [-jumpBudget n]}
+ */
+class SamplerComparison
+{
+	public static void main(String[] args) throws IOException
+	{
+		List<Sampler.Algorithm> algorithms = new ArrayList<Sampler.Algorithm>(Arrays.asList(
+			Sampler.Algorithm.MHRW, Sampler.Algorithm.MHDA, Sampler.Algorithm.AS, Sampler.Algorithm.NBAS));
+		int budget = -1;
+		int repetitions = 100;
+		long seed = 0;
+		double alpha = 0.02;
+		int jumpBudget = 10;
+		for (int a = 1; a < args.length; a++)
+		{
+			if (args[a].equals("-algo"))
+			{
+				algorithms.clear();
+				for (String algo: args[++a].split(","))
+					algorithms.add(Sampler.Algorithm.valueOf(algo));
+			}
+			else if (args[a].equals("-budget"))
+				budget = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-repetitions"))
+				repetitions = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-seed"))
+				seed = Long.parseLong(args[++a]);
+			else if (args[a].equals("-alpha"))
+				alpha = Double.parseDouble(args[++a]);
+			else if (args[a].equals("-jumpBudget"))
+				jumpBudget = Integer.parseInt(args[++a]);
+			else
+				throw new IllegalArgumentException("Unknown option " + args[a]);
+		}
+
+		Graph graph = Graph.load(args[0], args[0]);
+		System.out.println("Graph " + args[0] + ": " + graph.realNodeNumber + " nodes, " + graph.edgeCount + " edges");
+		System.out.println("algo\tsamples\tmixIn\tmixOut\tnmseIn\tnmseOut\tbiasIn\tbiasOut");
+		for (Sampler.Algorithm algorithm: algorithms)
+		{
+			Sampler sampler = new Sampler(graph, algorithm);
+			sampler.simulation = repetitions;
+			sampler.seed = seed;
+			sampler.alpha = alpha;
+			sampler.jumpBudget = jumpBudget;
+			if (budget > 0)
+				sampler.sampleSize = budget;
+			sampler.run();
+			System.out.println(algorithm + "\t" + sampler.totalSample / repetitions
+				+ "\t" + sampler.averageMixingTime(sampler.mixingTimeIn)
+				+ "\t" + sampler.averageMixingTime(sampler.mixingTimeOut)
+				+ "\t" + format(averageNMSE(sampler.percent2In, graph.percentIn))
+				+ "\t" + format(averageNMSE(sampler.percent2Out, graph.percentOut))
+				+ "\t" + format(Sampler.distance(sampler.percent1In, graph.percentIn))
+				+ "\t" + format(Sampler.distance(sampler.percent1Out, graph.percentOut)));
+		}
+	}
+
+	private static double averageNMSE(double[] percent2, double[] percent)
+	{
+		double sum = 0;
+		int number = 0;
+		for (int m = 0; m < percent.length; m++)
+		{
+			if (percent[m] > 0 && percent[m] < 1)
+			{
+				sum = sum + percent2[m];
+				number++;
+			}
+		}
+		return number == 0 ? 0 : sum / number;
+	}
+
+	private static String format(double value)
+	{
+		return String.format("%.4f", value);
+	}
+}
@@ -0,0 +1,85 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Measures the throughput of the samplers (sampled nodes per second)
+ * on one graph, for several node orders (see {@link GraphReordering}).
+ * Each configuration is run once to warm the JIT up, then several times,
+ * and the median throughput is displayed.
+ * <br/>
+ * Cache misses cannot be counted from Java. To get them, benchmark one
+ * order at a time under a profiler, for instance
+ * {@code perf stat -e cache-misses,cache-references java SamplingBenchmark graph.txt -order RCM}.
+ * <br/>
+ * Usage: {@code SamplingBenchmark graph-file [-algo AS,MHRW] [-order NONE,DEGREE,RCM,COMMUNITY]
+ * [-budget n] [-repetitions n] [-rounds n] [-seed n]}
+ */
+class SamplingBenchmark
+{
+	public static void main(String[] args) throws IOException
+	{
+		List<Sampler.Algorithm> algorithms = new ArrayList<Sampler.Algorithm>(Arrays.asList(Sampler.Algorithm.AS, Sampler.Algorithm.MHRW));
+		List<String> orders = new ArrayList<String>(Arrays.asList("NONE", "DEGREE", "RCM", "COMMUNITY"));
+		int budget = -1;
+		int repetitions = 10;
+		int rounds = 5;
+		long seed = 0;
+		for (int a = 1; a < args.length; a++)
+		{
+			if (args[a].equals("-algo"))
+			{
+				algorithms.clear();
+				for (String algo: args[++a].split(","))
+					algorithms.add(Sampler.Algorithm.valueOf(algo));
+			}
+			else if (args[a].equals("-order"))
+				orders = Arrays.asList(args[++a].split(","));
+			else if (args[a].equals("-budget"))
+				budget = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-repetitions"))
+				repetitions = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-rounds"))
+				rounds = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-seed"))
+				seed = Long.parseLong(args[++a]);
+			else
+				throw new IllegalArgumentException("Unknown option " + args[a]);
+		}
+
+		Graph original = Graph.load(args[0], args[0]);
+		System.out.println("Graph " + args[0] + ": " + original.realNodeNumber + " nodes, " + original.edgeCount + " edges");
+		System.out.println("order\talgo\treorderMs\tstepsPerSecond\tmin\tmax");
+		for (String order: orders)
+		{
+			long start = System.nanoTime();
+			Graph graph = original;
+			if (!order.equals("NONE"))
+				graph = GraphReordering.reorder(original, GraphReordering.Order.valueOf(order));
+			long reorderMs = (System.nanoTime() - start) / 1000000;
+
+			for (Sampler.Algorithm algorithm: algorithms)
+			{
+				double[] throughputs = new double[rounds];
+				for (int r = -1; r < rounds; r++)
+				{
+					Sampler sampler = new Sampler(graph, algorithm);
+					sampler.simulation = repetitions;
+					sampler.seed = seed;
+					if (budget > 0)
+						sampler.sampleSize = budget;
+					start = System.nanoTime();
+					sampler.run();
+					double seconds = (System.nanoTime() - start) / 1e9;
+					// first run is only for warming up
+					if (r >= 0)
+						throughputs[r] = sampler.totalSample / seconds;
+				}
+				Arrays.sort(throughputs);
+				System.out.println(order + "\t" + algorithm + "\t" + reorderMs + "\t" + (long)throughputs[rounds / 2]
+					+ "\t" + (long)throughputs[0] + "\t" + (long)throughputs[rounds - 1]);
+			}
+		}
+	}
+}
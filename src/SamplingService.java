@@ -0,0 +1,610 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Long-running sampling service. Graphs are loaded once and stay
+ * resident, so that successive experiments do not pay the loading
+ * and warm-up costs of a new JVM each time.
+ * <br/>
+ * The service listens on the loopback interface only, and answers
+ * plain text (tab-separated) to the following requests:
+ * <ul>
+ * 	<li>{@code GET /graphs}: lists the loaded graphs;</li>
+ * 	<li>{@code POST /graphs?name=...&file=...[&order=DEGREE|RCM|COMMUNITY]}: loads
+ * 		another graph, possibly reordering its nodes (see {@link GraphReordering}).
+ * 		The memory needed is estimated from the file (see {@link BatchSampling#estimate(File)})
+ * 		and reserved like for a job during the loading;</li>
+ * 	<li>{@code POST /jobs?graph=...&algo=AS|MHRW|BFS|PBFS|MHDA|NBAS&alpha=...&jumpBudget=...&budget=...&repetitions=...&seed=...}:
+ * 		runs a sampling job. Only {@code graph} is mandatory, the other
+ * 		parameters default to the values of {@link AlbatrossSampling}. A PBFS
+ * 		job uses a single thread unless {@code threads} is specified, and at
+ * 		most the number of cores divided by the number of workers, so that the
+ * 		jobs running together do not use more threads than there are cores. With
+ * 		{@code budgets=0.01,0.02,...}, the estimation is also recorded when the
+ * 		spent budget reaches these fractions of the nodes. One line
+ * 		is streamed back as each repetition finishes, then a summary line. With
+ * 		{@code details=true}, the estimated CDF and NMSE follow the summary;</li>
+ * 	<li>{@code GET /stats}: latency and throughput of the jobs run so far.</li>
+ * </ul>
+ * Jobs run concurrently on a fixed pool of workers. A job (or a graph
+ * to load) is rejected (status 503) if the memory it needs is not available
+ * on the heap, or if too many jobs are already waiting for a worker.
+ * <br/>
+ * Usage: {@code SamplingService [-port 8080] [-workers n] [-queue n] [-heap 0.8]
+ * [-order DEGREE|RCM|COMMUNITY] [name=]file...}
+ */
+class SamplingService
+{
+	/** Marks the end of the lines produced by a job */
+	private static final Object END = new Object();
+
+	final Map<String,Graph> graphs = new ConcurrentHashMap<String,Graph>();
+	final ThreadPoolExecutor workers;
+	final int maxWaiting;						// jobs allowed to wait for a worker
+	final double heapFraction;					// part of the free heap jobs can reserve
+	final int threadsPerJob;					// most threads of a PBFS job
+	HttpServer server;
+
+	// admission control
+	private long reservedBytes = 0;
+	private int admittedJobs = 0;
+
+	// statistics
+	private long submittedJobs = 0;
+	private long rejectedJobs = 0;
+	private long completedJobs = 0;
+	private long failedJobs = 0;
+	private long totalWaitNanos = 0;
+	private long totalRunNanos = 0;
+	private long maxLatencyNanos = 0;
+	private long totalSteps = 0;
+	private long totalRepetitions = 0;
+
+	SamplingService(int workerNumber, int maxWaiting, double heapFraction)
+	{
+		workers = new ThreadPoolExecutor(workerNumber, workerNumber, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+		this.maxWaiting = maxWaiting;
+		this.heapFraction = heapFraction;
+		threadsPerJob = Math.max(1, Runtime.getRuntime().availableProcessors() / workerNumber);
+	}
+
+	/**
+	 * Starts listening on the loopback interface.
+	 *
+	 * @param port
+	 * 		Port number.
+	 *
+	 * @throws IOException
+	 * 		Problem while opening the socket.
+	 */
+	void start(int port) throws IOException
+	{
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.createContext("/graphs", new HttpHandler()
+		{	@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{	handleGraphs(exchange);
+			}
+		});
+		server.createContext("/jobs", new HttpHandler()
+		{	@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{	handleJob(exchange);
+			}
+		});
+		server.createContext("/stats", new HttpHandler()
+		{	@Override
+			public void handle(HttpExchange exchange) throws IOException
+			{	handleStats(exchange);
+			}
+		});
+		// handlers mostly wait for their job, so they get their own threads
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+		System.out.println("Listening on " + server.getAddress());
+	}
+
+	/**
+	 * Loads a graph and keeps it resident.
+	 *
+	 * @param name
+	 * 		Name used by the jobs to refer to the graph.
+	 * @param filename
+	 * 		Path of the edge list.
+	 * @param order
+	 * 		Node order, or {@code null} to keep the order of the file.
+	 * @return
+	 * 		The loaded graph.
+	 *
+	 * @throws IOException
+	 * 		Problem while reading the graph.
+	 */
+	Graph loadGraph(String name, String filename, GraphReordering.Order order) throws IOException
+	{
+		System.out.println("Loading " + filename);
+		long start = System.nanoTime();
+		Graph graph = Graph.load(name, filename);
+		if (order != null)
+			graph = GraphReordering.reorder(graph, order);
+		graphs.put(name, graph);
+		System.out.println("Loading complete (" + name + ": " + graph.realNodeNumber + " nodes, "
+			+ graph.edgeCount + " edges, " + (System.nanoTime() - start) / 1000000 + " ms)");
+		return graph;
+	}
+
+	private void handleGraphs(HttpExchange exchange) throws IOException
+	{
+		Map<String,String> params = parseQuery(exchange);
+		if (exchange.getRequestMethod().equals("POST"))
+		{
+			String name = params.get("name");
+			String file = params.get("file");
+			if (name == null || file == null)
+			{
+				reply(exchange, 400, "name and file are required\n");
+				return;
+			}
+			GraphReordering.Order order = null;
+			try
+			{
+				if (params.containsKey("order"))
+					order = GraphReordering.Order.valueOf(params.get("order"));
+			}
+			catch (IllegalArgumentException e)
+			{
+				reply(exchange, 400, "unknown order " + params.get("order") + "\n");
+				return;
+			}
+			Graph graph;
+			long bytes = 0;
+			try
+			{
+				BatchSampling.GraphJob estimate = BatchSampling.estimate(new File(file));
+				// the reordering builds a copy of the graph
+				bytes = Graph.estimateLoadFootprint(estimate.nodeNumber, estimate.edgeNumber)
+					+ (order == null ? 0 : Graph.estimateFootprint(estimate.nodeNumber, estimate.edgeNumber));
+				String refusal = reserve(bytes);
+				if (refusal != null)
+				{
+					bytes = 0;
+					reply(exchange, 503, "cannot load " + file + ": " + refusal + "\n");
+					return;
+				}
+				graph = loadGraph(name, file, order);
+			}
+			catch (IOException e)
+			{
+				reply(exchange, 500, "could not load " + file + ": " + e.getMessage() + "\n");
+				return;
+			}
+			finally
+			{
+				unreserve(bytes);
+			}
+			reply(exchange, 200, describe(graph));
+		}
+		else
+		{
+			StringBuilder sb = new StringBuilder();
+			for (Graph graph: graphs.values())
+				sb.append(describe(graph));
+			reply(exchange, 200, sb.toString());
+		}
+	}
+
+	private static String describe(Graph graph)
+	{
+		return graph.name + "\tnodes\t" + graph.realNodeNumber + "\tedges\t" + graph.edgeCount
+			+ "\tmaxDegreeIn\t" + graph.maxDegreeIn + "\tmaxDegreeOut\t" + graph.maxDegreeOut + "\n";
+	}
+
+	private void handleJob(HttpExchange exchange) throws IOException
+	{
+		String method = exchange.getRequestMethod();
+		if (!method.equals("GET") && !method.equals("POST"))
+		{
+			exchange.getResponseHeaders().set("Allow", "GET, POST");
+			reply(exchange, 405, "method " + method + " not allowed\n");
+			return;
+		}
+		Map<String,String> params = parseQuery(exchange);
+		Graph graph = params.containsKey("graph") ? graphs.get(params.get("graph")) : null;
+		if (graph == null)
+		{
+			reply(exchange, 404, "unknown graph " + params.get("graph") + "\n");
+			return;
+		}
+
+		Job job;
+		try
+		{
+			Sampler.Algorithm algorithm = Sampler.Algorithm.valueOf(get(params, "algo", "AS"));
+			Sampler sampler = new Sampler(graph, algorithm);
+			sampler.alpha = Double.parseDouble(get(params, "alpha", Double.toString(sampler.alpha)));
+			sampler.jumpBudget = Integer.parseInt(get(params, "jumpBudget", Integer.toString(sampler.jumpBudget)));
+			sampler.sampleSize = Integer.parseInt(get(params, "budget", Integer.toString(sampler.sampleSize)));
+			sampler.simulation = Integer.parseInt(get(params, "repetitions", Integer.toString(sampler.simulation)));
+			if (params.containsKey("seed"))
+				sampler.seed = Long.parseLong(params.get("seed"));
+			sampler.threads = Math.min(threadsPerJob, Integer.parseInt(get(params, "threads", "1")));
+			if (params.containsKey("budgets"))
+			{
+				sampler.budgetFractions = BatchSampling.parseFractions(params.get("budgets"));
+				new BudgetSnapshots(sampler.budgetFractions, graph, 1);	// only checks the fractions
+				int largest = (int)(sampler.budgetFractions[sampler.budgetFractions.length - 1] * graph.realNodeNumber);
+				if (largest > sampler.sampleSize)
+					throw new IllegalArgumentException("budgets exceed the budget " + sampler.sampleSize);
+			}
+			if (sampler.simulation < 1 || sampler.sampleSize < 1 || sampler.threads < 1)
+				throw new IllegalArgumentException("budget, repetitions and threads must be positive");
+			job = new Job(sampler, Boolean.parseBoolean(get(params, "details", "false")));
+		}
+		catch (IllegalArgumentException e)
+		{
+			reply(exchange, 400, "invalid job: " + e.getMessage() + "\n");
+			return;
+		}
+
+		String refusal = admit(job);
+		if (refusal != null)
+		{
+			reply(exchange, 503, refusal + "\n");
+			return;
+		}
+		workers.execute(job);
+
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(200, 0);
+		OutputStream os = exchange.getResponseBody();
+		try
+		{
+			Object line;
+			while ((line = job.lines.take()) != END)
+			{
+				os.write(((String)line).getBytes("UTF-8"));
+				os.flush();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (IOException e)
+		{	// the client left: the job goes on, but nobody reads its output
+			job.detached = true;
+		}
+		finally
+		{
+			exchange.close();
+		}
+	}
+
+	private void handleStats(HttpExchange exchange) throws IOException
+	{
+		StringBuilder sb = new StringBuilder();
+		Runtime rt = Runtime.getRuntime();
+		synchronized (this)
+		{
+			long finished = completedJobs + failedJobs;
+			sb.append("submitted\t").append(submittedJobs).append('\n');
+			sb.append("rejected\t").append(rejectedJobs).append('\n');
+			sb.append("completed\t").append(completedJobs).append('\n');
+			sb.append("failed\t").append(failedJobs).append('\n');
+			sb.append("running\t").append(workers.getActiveCount()).append('\n');
+			sb.append("waiting\t").append(workers.getQueue().size()).append('\n');
+			sb.append("reservedBytes\t").append(reservedBytes).append('\n');
+			sb.append("threadsPerJob\t").append(threadsPerJob).append('\n');
+			sb.append("usedHeap\t").append(rt.totalMemory() - rt.freeMemory()).append('\n');
+			sb.append("maxHeap\t").append(rt.maxMemory()).append('\n');
+			if (finished > 0)
+			{
+				sb.append("averageWaitMs\t").append(totalWaitNanos / finished / 1e6).append('\n');
+				sb.append("averageLatencyMs\t").append((totalWaitNanos + totalRunNanos) / finished / 1e6).append('\n');
+				sb.append("maxLatencyMs\t").append(maxLatencyNanos / 1e6).append('\n');
+			}
+			if (totalRunNanos > 0)
+			{
+				sb.append("stepsPerSecond\t").append(totalSteps / (totalRunNanos / 1e9)).append('\n');
+				sb.append("repetitionsPerSecond\t").append(totalRepetitions / (totalRunNanos / 1e9)).append('\n');
+			}
+		}
+		reply(exchange, 200, sb.toString());
+	}
+
+	/**
+	 * Decides whether a job can be accepted, and if so
+	 * reserves the memory it needs.
+	 *
+	 * @param job
+	 * 		Job to admit.
+	 * @return
+	 * 		{@code null} if the job is admitted, otherwise
+	 * 		the reason of the refusal.
+	 */
+	private synchronized String admit(Job job)
+	{
+		submittedJobs++;
+		long available = available();
+		String result = null;
+		if (admittedJobs >= workers.getMaximumPoolSize() + maxWaiting)
+			result = "too many jobs: " + admittedJobs + " admitted for " + workers.getMaximumPoolSize() + " workers";
+		else if (job.bytes > available)
+			result = "not enough memory: job needs " + job.bytes + " bytes, " + Math.max(available, 0) + " available";
+		if (result == null)
+		{
+			admittedJobs++;
+			reservedBytes = reservedBytes + job.bytes;
+		}
+		else
+			rejectedJobs++;
+		return result;
+	}
+
+	/**
+	 * Reserves the memory needed to load a graph,
+	 * if it is available.
+	 *
+	 * @param bytes
+	 * 		Estimated peak footprint of the loading.
+	 * @return
+	 * 		{@code null} if the memory is reserved, otherwise
+	 * 		the reason of the refusal.
+	 */
+	private synchronized String reserve(long bytes)
+	{
+		long available = available();
+		if (bytes > available)
+			return "not enough memory: loading needs " + bytes + " bytes, " + Math.max(available, 0) + " available";
+		reservedBytes = reservedBytes + bytes;
+		return null;
+	}
+
+	private synchronized void unreserve(long bytes)
+	{
+		reservedBytes = reservedBytes - bytes;
+	}
+
+	private long available()
+	{
+		Runtime rt = Runtime.getRuntime();
+		long free = rt.maxMemory() - (rt.totalMemory() - rt.freeMemory());
+		return (long)(free * heapFraction) - reservedBytes;
+	}
+
+	private synchronized void release(Job job, boolean success)
+	{
+		admittedJobs--;
+		reservedBytes = reservedBytes - job.bytes;
+		if (success)
+			completedJobs++;
+		else
+			failedJobs++;
+		long wait = job.startTime - job.submitTime;
+		long run = job.endTime - job.startTime;
+		totalWaitNanos = totalWaitNanos + wait;
+		totalRunNanos = totalRunNanos + run;
+		maxLatencyNanos = Math.max(maxLatencyNanos, wait + run);
+		totalSteps = totalSteps + job.sampler.totalSample;
+		totalRepetitions = totalRepetitions + job.repetitionsDone;
+	}
+
+	/**
+	 * Sampling job: runs its sampler on a worker, and
+	 * queues the lines to be sent back to the client.
+	 */
+	private class Job implements Runnable, Sampler.Listener
+	{
+		final Sampler sampler;
+		final boolean details;
+		final long bytes;
+		final BlockingQueue<Object> lines = new LinkedBlockingQueue<Object>();		// strings, then END
+		final long submitTime = System.nanoTime();
+		long startTime;
+		long endTime;
+		long lastTime;
+		int repetitionsDone = 0;
+		volatile boolean detached = false;
+
+		Job(Sampler sampler, boolean details)
+		{
+			this.sampler = sampler;
+			this.details = details;
+			bytes = sampler.estimateFootprint();
+			sampler.listener = this;
+		}
+
+		@Override
+		public void run()
+		{
+			startTime = System.nanoTime();
+			lastTime = startTime;
+			boolean success = false;
+			try
+			{
+				sampler.run();
+				endTime = System.nanoTime();
+				success = true;
+				send(summary());
+			}
+			catch (Throwable t)
+			{
+				endTime = System.nanoTime();
+				send("failed\t" + t + "\n");
+			}
+			finally
+			{
+				release(this, success);
+				lines.offer(END);
+			}
+		}
+
+		@Override
+		public void repetitionDone(Sampler s, int count)
+		{
+			long now = System.nanoTime();
+			repetitionsDone++;
+			send("repetition\t" + count
+				+ "\tsamples\t" + s.sampleNumbers[count]
+				+ "\tmixingTimeIn\t" + s.mixingTimeIn[count]
+				+ "\tmixingTimeOut\t" + s.mixingTimeOut[count]
+				+ "\tdistanceIn\t" + Sampler.distance(s.percent3In, s.graph.percentIn)
+				+ "\tdistanceOut\t" + Sampler.distance(s.percent3Out, s.graph.percentOut)
+				+ "\tms\t" + (now - lastTime) / 1e6 + "\n");
+			lastTime = now;
+		}
+
+		private String summary()
+		{
+			double runSeconds = (endTime - startTime) / 1e9;
+			StringBuilder sb = new StringBuilder();
+			sb.append("done\talgo\t").append(sampler.algorithm)
+				.append("\tseed\t").append(sampler.seed)
+				.append("\tthreads\t").append(sampler.threads)
+				.append("\taverageSamples\t").append(sampler.totalSample / sampler.simulation)
+				.append("\taverageMixingTimeIn\t").append(sampler.averageMixingTime(sampler.mixingTimeIn))
+				.append("\taverageMixingTimeOut\t").append(sampler.averageMixingTime(sampler.mixingTimeOut))
+				.append("\twaitMs\t").append((startTime - submitTime) / 1e6)
+				.append("\trunMs\t").append((endTime - startTime) / 1e6)
+				.append("\tstepsPerSecond\t").append(sampler.totalSample / runSeconds)
+				.append("\trepetitionsPerSecond\t").append(sampler.simulation / runSeconds)
+				.append('\n');
+			BudgetSnapshots snapshots = sampler.snapshots;
+			if (snapshots != null)
+			{
+				for (int b = 0; b < snapshots.budgets.length; b++)
+				{
+					sb.append("budget\t").append(snapshots.fractions[b])
+						.append("\tbudget\t").append(snapshots.budgets[b])
+						.append("\taverageMixingTimeIn\t").append(average(snapshots.mixingTimeIn[b]))
+						.append("\taverageMixingTimeOut\t").append(average(snapshots.mixingTimeOut[b]))
+						.append('\n');
+				}
+			}
+			if (details)
+			{
+				appendValues(sb, "in_degree_distribution", sampler.percent1In, sampler.graph.maxDegreeIn);
+				appendValues(sb, "out_degree_distribution", sampler.percent1Out, sampler.graph.maxDegreeOut);
+				appendValues(sb, "in_degree_NMSE", sampler.percent2In, sampler.graph.maxDegreeIn);
+				appendValues(sb, "out_degree_NMSE", sampler.percent2Out, sampler.graph.maxDegreeOut);
+				for (int b = 0; snapshots != null && b < snapshots.budgets.length; b++)
+				{
+					String prefix = snapshots.fractions[b] + "_";
+					appendValues(sb, prefix + "in_degree_distribution", snapshots.percent1In[b], sampler.graph.maxDegreeIn);
+					appendValues(sb, prefix + "out_degree_distribution", snapshots.percent1Out[b], sampler.graph.maxDegreeOut);
+					appendValues(sb, prefix + "in_degree_NMSE", snapshots.percent2In[b], sampler.graph.maxDegreeIn);
+					appendValues(sb, prefix + "out_degree_NMSE", snapshots.percent2Out[b], sampler.graph.maxDegreeOut);
+				}
+			}
+			return sb.toString();
+		}
+
+		private void send(String line)
+		{
+			if (!detached)
+				lines.offer(line);
+		}
+	}
+
+	private static void appendValues(StringBuilder sb, String title, double[] values, int number)
+	{
+		sb.append(title);
+		for (int m = 0; m < number; m++)
+			sb.append('\t').append(values[m]);
+		sb.append('\n');
+	}
+
+	private static double average(int[] values)
+	{
+		double result = 0;
+		for (int value: values)
+			result = result + value;
+		return result / values.length;
+	}
+
+	private static String get(Map<String,String> params, String key, String defaultValue)
+	{
+		String result = params.get(key);
+		if (result == null)
+			result = defaultValue;
+		return result;
+	}
+
+	private static Map<String,String> parseQuery(HttpExchange exchange) throws UnsupportedEncodingException
+	{
+		Map<String,String> result = new HashMap<String,String>();
+		String query = exchange.getRequestURI().getRawQuery();
+		if (query != null)
+		{
+			for (String pair: query.split("&"))
+			{
+				int pos = pair.indexOf('=');
+				if (pos > 0)
+					result.put(URLDecoder.decode(pair.substring(0, pos), "UTF-8"), URLDecoder.decode(pair.substring(pos + 1), "UTF-8"));
+			}
+		}
+		return result;
+	}
+
+	private static void reply(HttpExchange exchange, int status, String text) throws IOException
+	{
+		byte[] bytes = text.getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		OutputStream os = exchange.getResponseBody();
+		os.write(bytes);
+		os.close();
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		int port = 8080;
+		int workerNumber = Runtime.getRuntime().availableProcessors();
+		int maxWaiting = 4 * workerNumber;
+		double heapFraction = 0.8;
+		GraphReordering.Order order = null;
+		Map<String,String> files = new HashMap<String,String>();
+		for (int a = 0; a < args.length; a++)
+		{
+			if (args[a].equals("-port"))
+				port = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-workers"))
+				workerNumber = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-queue"))
+				maxWaiting = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-heap"))
+				heapFraction = Double.parseDouble(args[++a]);
+			else if (args[a].equals("-order"))
+				order = GraphReordering.Order.valueOf(args[++a]);
+			else
+			{
+				int pos = args[a].indexOf('=');
+				if (pos > 0)
+					files.put(args[a].substring(0, pos), args[a].substring(pos + 1));
+				else
+					files.put(new File(args[a]).getName(), args[a]);
+			}
+		}
+
+		SamplingService service = new SamplingService(workerNumber, maxWaiting, heapFraction);
+		for (Map.Entry<String,String> entry: files.entrySet())
+			service.loadGraph(entry.getKey(), entry.getValue(), order);
+		service.start(port);
+	}
+}
@@ -0,0 +1,433 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * True degree distributions of a graph, computed in a single pass
+ * over its edge list, without building the adjacency arrays of
+ * {@link Graph}. Only two degree counters are kept per node, so the
+ * memory is proportional to the number of nodes, not of edges. This
+ * is enough to get the ground truth a sample is compared to, e.g. to
+ * validate the samples taken from a crawl.
+ * <br/>
+ * The counters are indexed by node id when the ids are dense enough,
+ * and held in a hash table otherwise (ids larger than {@link #MAX_DENSE},
+ * or {@code -sparse} option), whose size depends only on the number of
+ * distinct nodes. The counters of several files (e.g. the shards of a
+ * large edge list) can be summed with {@link #merge(StreamingGroundTruth)}.
+ * <br/>
+ * Like in {@link Graph}, self-loops are ignored and multiple edges are
+ * counted in the in and out degrees. The undirected degree is the sum
+ * of both (mode "all" of igraph, as in {@code script/test.R}): removing
+ * reciprocal and multiple links, like {@link Graph#allLinks}, would
+ * require the neighbors of each node, hence memory in O(edges).
+ * <br/>
+ * Usage: {@code StreamingGroundTruth graph-file... [-out folder] [-sparse]}
+ */
+class StreamingGroundTruth
+{
+	/** Largest number of counters indexed by node id (2 ints per id) */
+	static final int MAX_DENSE = 1 << 28;
+	/** Initial size of the counter arrays */
+	private static final int INITIAL_SIZE = 1 << 10;
+
+	String name;
+	long nodeNumber;					// as announced in the file headers
+	long edgeNumber;					// as announced in the file headers
+	long edgeCount;						// edges actually read, self-loops excluded
+	long realNodeNumber;
+	int maxDegreeIn;
+	int maxDegreeOut;
+	int maxDegreeAll;
+	double[] percentIn;					// True Value
+	double[] percentOut;
+	double[] percentAll;
+
+	private int[] inDegree;				// dense counters, indexed by id
+	private int[] outDegree;
+	private long[] keys;				// sparse counters: id + 1, 0 for an empty slot
+	private int[] sparseIn;
+	private int[] sparseOut;
+	private int used;					// occupied slots
+
+	/**
+	 * Creates empty counters.
+	 *
+	 * @param name
+	 * 		Name used to refer to the graph.
+	 * @param sparse
+	 * 		Whether the counters should be held in a hash table
+	 * 		from the start, instead of being indexed by id.
+	 */
+	StreamingGroundTruth(String name, boolean sparse)
+	{
+		this.name = name;
+		if (sparse)
+			initSparse(INITIAL_SIZE);
+		else
+		{
+			inDegree = new int[INITIAL_SIZE];
+			outDegree = new int[INITIAL_SIZE];
+		}
+	}
+
+	/**
+	 * Reads an edge list and adds its edges to the counters.
+	 *
+	 * @param filename
+	 * 		Path of the edge list.
+	 *
+	 * @throws IOException
+	 * 		Problem while reading the file.
+	 */
+	void read(String filename) throws IOException
+	{
+		EdgeReader reader = new EdgeReader(filename);
+		try
+		{
+			start(reader);
+			while (reader.next())
+				add(reader.from, reader.to);
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	/**
+	 * Takes the header of an edge list into account,
+	 * before its edges are added.
+	 *
+	 * @param reader
+	 * 		Reader of the edge list, whose header was just read.
+	 */
+	void start(EdgeReader reader)
+	{
+		nodeNumber = Math.max(nodeNumber, reader.nodeNumber);
+		edgeNumber = edgeNumber + reader.edgeNumber;
+		if (inDegree != null && reader.nodeNumber > inDegree.length && reader.nodeNumber <= MAX_DENSE)
+			grow((int)reader.nodeNumber);
+	}
+
+	/**
+	 * Counts one edge.
+	 *
+	 * @param from
+	 * 		Origin of the edge.
+	 * @param to
+	 * 		Destination of the edge.
+	 */
+	void add(long from, long to)
+	{
+		if (from == to)
+			return;
+		edgeCount++;
+		if (inDegree != null && (from >= inDegree.length || to >= inDegree.length))
+			grow(Math.max(from, to) + 1);
+		if (inDegree != null)
+		{
+			outDegree[(int)from]++;
+			inDegree[(int)to]++;
+		}
+		else
+		{
+			// the slot must be found first, as it can reallocate the arrays
+			int s = slot(from);
+			sparseOut[s]++;
+			s = slot(to);
+			sparseIn[s]++;
+		}
+	}
+
+	/**
+	 * Adds the counters of another graph (e.g. another shard
+	 * of the same edge list) to these ones.
+	 *
+	 * @param other
+	 * 		Counters to add.
+	 */
+	void merge(StreamingGroundTruth other)
+	{
+		nodeNumber = Math.max(nodeNumber, other.nodeNumber);
+		edgeNumber = edgeNumber + other.edgeNumber;
+		edgeCount = edgeCount + other.edgeCount;
+		if (other.inDegree != null)
+		{
+			for (int v = 0; v < other.inDegree.length; v++)
+			{
+				if (other.inDegree[v] != 0 || other.outDegree[v] != 0)
+					add(v, other.inDegree[v], other.outDegree[v]);
+			}
+		}
+		else
+		{
+			for (int s = 0; s < other.keys.length; s++)
+			{
+				if (other.keys[s] != 0)
+					add(other.keys[s] - 1, other.sparseIn[s], other.sparseOut[s]);
+			}
+		}
+	}
+
+	private void add(long v, int in, int out)
+	{
+		if (inDegree != null && v >= inDegree.length)
+			grow(v + 1);
+		if (inDegree != null)
+		{
+			inDegree[(int)v] = inDegree[(int)v] + in;
+			outDegree[(int)v] = outDegree[(int)v] + out;
+		}
+		else
+		{
+			int s = slot(v);
+			sparseIn[s] = sparseIn[s] + in;
+			sparseOut[s] = sparseOut[s] + out;
+		}
+	}
+
+	/**
+	 * In degree of a node, counted so far.
+	 *
+	 * @param v
+	 * 		Id of the node.
+	 * @return
+	 * 		Its in degree, 0 if it appeared in no edge.
+	 */
+	int degreeIn(long v)
+	{
+		if (inDegree != null)
+			return v < inDegree.length ? inDegree[(int)v] : 0;
+		int s = find(v);
+		return s < 0 ? 0 : sparseIn[s];
+	}
+
+	/**
+	 * Out degree of a node, counted so far.
+	 *
+	 * @param v
+	 * 		Id of the node.
+	 * @return
+	 * 		Its out degree, 0 if it appeared in no edge.
+	 */
+	int degreeOut(long v)
+	{
+		if (inDegree != null)
+			return v < outDegree.length ? outDegree[(int)v] : 0;
+		int s = find(v);
+		return s < 0 ? 0 : sparseOut[s];
+	}
+
+	/**
+	 * Makes the dense counters large enough for {@code size} ids,
+	 * or switches to the hash table if they would be too large.
+	 */
+	private void grow(long size)
+	{
+		if (size > MAX_DENSE)
+		{
+			int[] in = inDegree;
+			int[] out = outDegree;
+			inDegree = null;
+			outDegree = null;
+			int count = 0;
+			for (int v = 0; v < in.length; v++)
+			{
+				if (in[v] != 0 || out[v] != 0)
+					count++;
+			}
+			initSparse(Math.max(INITIAL_SIZE, Integer.highestOneBit(count) * 4));
+			for (int v = 0; v < in.length; v++)
+			{
+				if (in[v] != 0 || out[v] != 0)
+					add(v, in[v], out[v]);
+			}
+		}
+		else
+		{
+			int newSize = (int)Math.min(MAX_DENSE, Math.max(size, 2L * inDegree.length));
+			inDegree = Arrays.copyOf(inDegree, newSize);
+			outDegree = Arrays.copyOf(outDegree, newSize);
+		}
+	}
+
+	private void initSparse(int size)
+	{
+		keys = new long[size];
+		sparseIn = new int[size];
+		sparseOut = new int[size];
+		used = 0;
+	}
+
+	/**
+	 * Slot of a node in the hash table (linear probing),
+	 * the node being inserted if necessary.
+	 */
+	private int slot(long v)
+	{
+		int mask = keys.length - 1;
+		int s = (int)mix(v) & mask;
+		while (keys[s] != 0 && keys[s] != v + 1)
+			s = (s + 1) & mask;
+		if (keys[s] == 0)
+		{
+			if (3 * (used + 1) > 2 * keys.length)
+			{
+				rehash();
+				return slot(v);
+			}
+			keys[s] = v + 1;
+			used++;
+		}
+		return s;
+	}
+
+	/**
+	 * Slot of a node in the hash table, without inserting it.
+	 *
+	 * @return
+	 * 		The slot, or -1 if the node is not in the table.
+	 */
+	private int find(long v)
+	{
+		int mask = keys.length - 1;
+		int s = (int)mix(v) & mask;
+		while (keys[s] != 0)
+		{
+			if (keys[s] == v + 1)
+				return s;
+			s = (s + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void rehash()
+	{
+		long[] oldKeys = keys;
+		int[] oldIn = sparseIn;
+		int[] oldOut = sparseOut;
+		initSparse(2 * oldKeys.length);
+		for (int s = 0; s < oldKeys.length; s++)
+		{
+			if (oldKeys[s] != 0)
+			{
+				int t = slot(oldKeys[s] - 1);
+				sparseIn[t] = oldIn[s];
+				sparseOut[t] = oldOut[s];
+			}
+		}
+	}
+
+	private static long mix(long z)
+	{
+		z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+		z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+		return z ^ (z >>> 33);
+	}
+
+	/**
+	 * Computes the node counts and the true distributions,
+	 * once all the edges have been counted.
+	 */
+	void finish()
+	{
+		int[] in = inDegree != null ? inDegree : sparseIn;
+		int[] out = inDegree != null ? outDegree : sparseOut;
+		maxDegreeIn = 0;
+		maxDegreeOut = 0;
+		maxDegreeAll = 0;
+		for (int v = 0; v < in.length; v++)
+		{
+			maxDegreeIn = Math.max(maxDegreeIn, in[v]);
+			maxDegreeOut = Math.max(maxDegreeOut, out[v]);
+			maxDegreeAll = Math.max(maxDegreeAll, in[v] + out[v]);
+		}
+		long[] histogramIn = new long[maxDegreeIn + 1];
+		long[] histogramOut = new long[maxDegreeOut + 1];
+		long[] histogramAll = new long[maxDegreeAll + 1];
+		realNodeNumber = 0;
+		for (int v = 0; v < in.length; v++)
+		{
+			// nodes appearing in no edge are not real
+			if (in[v] + out[v] > 0)
+			{
+				realNodeNumber++;
+				histogramIn[in[v]]++;
+				histogramOut[out[v]]++;
+				histogramAll[in[v] + out[v]]++;
+			}
+		}
+		percentIn = Graph.cumulate(histogramIn, realNodeNumber);
+		percentOut = Graph.cumulate(histogramOut, realNodeNumber);
+		percentAll = Graph.cumulate(histogramAll, realNodeNumber);
+	}
+
+	/**
+	 * Records the true distributions, using the same files as
+	 * {@link Graph#writeDistributions(String)}, plus the undirected
+	 * one in {@code Original_graph_all_degree_distribution.txt}.
+	 *
+	 * @param folder
+	 * 		Folder receiving the files.
+	 *
+	 * @throws FileNotFoundException
+	 * 		Problem while recording the files.
+	 */
+	void writeDistributions(String folder) throws FileNotFoundException
+	{
+		Graph.writeValues(folder + File.separator + "Original_graph_in_degree_distribution.txt", percentIn, maxDegreeIn);
+		Graph.writeValues(folder + File.separator + "Original_graph_out_degree_distribution.txt", percentOut, maxDegreeOut);
+		Graph.writeValues(folder + File.separator + "Original_graph_all_degree_distribution.txt", percentAll, maxDegreeAll);
+	}
+
+	/**
+	 * Displays the counts, like {@link AlbatrossSampling#printGraph(Graph, String, PrintStream)}.
+	 *
+	 * @param out
+	 * 		Stream receiving the text.
+	 */
+	void printSummary(PrintStream out)
+	{
+		out.println("Test File: " + name);
+		out.println("Average Degree = " + (double)edgeCount / (double)realNodeNumber);
+		out.println("Node Number = " + nodeNumber);
+		out.println("Real Node Number = " + realNodeNumber);
+		out.println("Edge Number = " + edgeCount + " (" + edgeNumber + " announced)");
+		out.println("Max Degree (In/Out/All) = " + maxDegreeIn + "/" + maxDegreeOut + "/" + maxDegreeAll);
+		out.println("Counters = " + (inDegree != null ? inDegree.length + " ids" : keys.length + " slots"));
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		String folder = null;
+		boolean sparse = false;
+		StreamingGroundTruth result = null;
+		for (int a = 0; a < args.length; a++)
+		{
+			if (args[a].equals("-out"))
+				folder = args[++a];
+			else if (args[a].equals("-sparse"))
+				sparse = true;
+			else
+			{
+				// each file is counted on its own, then merged
+				StreamingGroundTruth shard = new StreamingGroundTruth(args[a], sparse);
+				shard.read(args[a]);
+				if (result == null)
+					result = shard;
+				else
+					result.merge(shard);
+			}
+		}
+		if (result == null)
+			throw new IllegalArgumentException("No graph file");
+
+		result.finish();
+		result.printSummary(System.out);
+		if (folder != null)
+			result.writeDistributions(folder);
+	}
+}
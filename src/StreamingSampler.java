@@ -0,0 +1,737 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Baseline sampling processes working directly on the edge list, in
+ * a single sequential pass, without building the adjacency arrays of
+ * {@link Graph}. They give cheap reference samples to compare AS with
+ * on graphs too large to be loaded:
+ * <ul>
+ * 	<li>ES: edge sampling, with a reservoir of {@code sampleSize/2} edges
+ * 	(Vitter's algorithm R). The sample is made of their endpoints, so
+ * 	the nodes are sampled proportionally to their degree;</li>
+ * 	<li>PIES: partially-induced edge sampling (Ahmed, Neville and
+ * 	Kompella, TKDD 2014), the streaming version of TIES (which needs a
+ * 	second pass to induce the edges). The endpoints of the first edges
+ * 	fill a reservoir of {@code sampleSize} nodes, then each edge is
+ * 	selected with probability {@code m/t}, {@code m} being the number of
+ * 	edges read when the reservoir got full and {@code t} the number read
+ * 	so far. The endpoints of a selected edge replace random nodes of the
+ * 	reservoir. The edges between sampled nodes are kept;</li>
+ * 	<li>NS: uniform node sampling, the {@code sampleSize} nodes being
+ * 	drawn among the ids announced in the header before the pass, which
+ * 	collects the edges between them. Nodes appearing in no edge are then
+ * 	removed from the sample, as they are not real nodes.</li>
+ * </ul>
+ * The repetitions of all the processes are run during the same pass,
+ * each one with its own generator (see {@link Sampler#repetitionSeed(long, int)}),
+ * while a {@link StreamingGroundTruth} counts the degrees. Once the pass
+ * is over, the degrees of the sampled nodes are known, and the CDF and
+ * NMSE are computed like in {@link Sampler}. They are recorded in the same
+ * files, and the sampled network of the first repetition in the same
+ * Pajek file. There is no walk, hence no mixing time.
+ * <br/>
+ * During a pass, each repetition holds its sample, i.e. for a sample
+ * size {@code s}, about {@code 4s} bytes for ES, {@code 8s + 8h} for PIES
+ * and {@code 4s + 8h} for NS, {@code h} being the number of slots of their
+ * hash map, between {@code 2s} and {@code 4s} (see {@link #repetitionBytes()}),
+ * plus the links kept for the first repetition. When all the repetitions
+ * do not fit in the memory given to the samples, they are run in batches,
+ * one pass per batch, the ground truth being counted during the first one.
+ * A configuration in which a single repetition does not fit is rejected.
+ * <br/>
+ * Node ids must be smaller than the number of nodes announced in the
+ * header, like in {@link Graph}.
+ * <br/>
+ * Usage: {@code StreamingSampler graph-file [-algo ES,PIES,NS] [-simulation n]
+ * [-sizeFactor n] [-memory bytes] [-out folder]}
+ */
+class StreamingSampler
+{
+	/**
+	 * Streaming sampling processes.
+	 */
+	enum Algorithm
+	{
+		ES, PIES, NS
+	}
+
+	final Algorithm algorithm;
+	int simulation = 1;					// number of repetitions of the sampling process
+	int sampleSize;						// number of sampled nodes
+	long seed = new Random().nextLong();
+	boolean recordSample = false;		// keep the network sampled during the first repetition
+
+	double[] percent1In;				// CDF
+	double[] percent1Out;
+	double[] percent2In;				// NMSE
+	double[] percent2Out;
+	int[] sampleNumbers;				// number of sampled nodes in each repetition
+	long totalSample;
+	IntList sampledNodes;				// first repetition only, if recordSample
+	IntList sampledArcs;				// same, as consecutive pairs of ids
+
+	private Sample[] samples;			// one per repetition of the current batch, during a pass
+	private int done;					// repetitions already processed
+	private int batch;					// repetitions of the current batch
+
+	/**
+	 * Creates a sampler.
+	 *
+	 * @param algorithm
+	 * 		Sampling process.
+	 * @param sampleSize
+	 * 		Number of nodes to sample.
+	 */
+	StreamingSampler(Algorithm algorithm, int sampleSize)
+	{
+		if (sampleSize < 2)
+			throw new IllegalArgumentException("Sample size " + sampleSize + " is too small");
+		this.algorithm = algorithm;
+		this.sampleSize = sampleSize;
+	}
+
+	/**
+	 * Memory held by one repetition during a pass, not counting
+	 * the links kept for the first repetition.
+	 *
+	 * @return
+	 * 		Estimated number of bytes.
+	 */
+	long repetitionBytes()
+	{
+		switch (algorithm)
+		{
+			case ES:
+				return 8L * (sampleSize / 2);
+			case PIES:
+				return 8L * sampleSize + NodeSet.bytes(sampleSize);
+			default:
+				return 4L * sampleSize + NodeSet.bytes(sampleSize);
+		}
+	}
+
+	/**
+	 * Samples an edge list with several processes, and computes its
+	 * true distributions. The repetitions are run in as few passes as
+	 * the memory allows, in the order of the processes.
+	 *
+	 * @param filename
+	 * 		Path of the edge list.
+	 * @param samplers
+	 * 		Sampling processes.
+	 * @param truth
+	 * 		Empty counters, receiving the true distributions.
+	 * @param memory
+	 * 		Memory available for the samples during a pass, in bytes.
+	 * @return
+	 * 		The number of passes over the file.
+	 *
+	 * @throws IOException
+	 * 		Problem while reading the file.
+	 * @throws IllegalArgumentException
+	 * 		A single repetition needs more memory than available.
+	 */
+	static int run(String filename, List<StreamingSampler> samplers, StreamingGroundTruth truth, long memory) throws IOException
+	{
+		for (StreamingSampler sampler: samplers)
+		{
+			if (sampler.repetitionBytes() > memory)
+				throw new IllegalArgumentException("A repetition of " + sampler.algorithm + " needs " + sampler.repetitionBytes()
+					+ " bytes, more than the " + memory + " bytes available for the samples");
+			sampler.done = 0;
+			sampler.percent1In = null;
+		}
+		int passes = 0;
+		boolean remaining = true;
+		while (remaining)
+		{
+			// next batch: as many repetitions as the memory allows
+			long free = memory;
+			for (StreamingSampler sampler: samplers)
+			{
+				long bytes = sampler.repetitionBytes();
+				sampler.batch = (int)Math.min(sampler.simulation - sampler.done, free / bytes);
+				free = free - sampler.batch * bytes;
+			}
+			pass(filename, samplers, passes == 0 ? truth : null);
+			if (passes == 0)
+				truth.finish();
+			passes++;
+			remaining = false;
+			for (StreamingSampler sampler: samplers)
+			{
+				sampler.collect(truth);
+				if (sampler.done < sampler.simulation)
+					remaining = true;
+			}
+		}
+		for (StreamingSampler sampler: samplers)
+			sampler.finish(truth);
+		return passes;
+	}
+
+	/**
+	 * Reads the edge list once, feeding the repetitions of the
+	 * current batch, and the ground truth if not {@code null}.
+	 */
+	private static void pass(String filename, List<StreamingSampler> samplers, StreamingGroundTruth truth) throws IOException
+	{
+		EdgeReader reader = new EdgeReader(filename);
+		try
+		{
+			long nodeNumber = reader.nodeNumber;
+			if (nodeNumber > Integer.MAX_VALUE)
+				throw new IOException("Too many nodes in " + filename + ": " + nodeNumber);
+			if (truth != null)
+				truth.start(reader);
+			for (StreamingSampler sampler: samplers)
+				sampler.start((int)nodeNumber);
+			long t = 0;
+			while (reader.next())
+			{
+				if (reader.from >= nodeNumber || reader.to >= nodeNumber)
+					throw new IOException("Node id out of range on line " + reader.lineNumber + " of " + filename);
+				if (reader.from == reader.to)
+					continue;
+				if (truth != null)
+					truth.add(reader.from, reader.to);
+				t++;
+				int from = (int)reader.from;
+				int to = (int)reader.to;
+				for (StreamingSampler sampler: samplers)
+				{
+					for (Sample sample: sampler.samples)
+						sample.edge(from, to, t);
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+	}
+
+	private void start(int nodeNumber)
+	{
+		samples = new Sample[batch];
+		for (int k = 0; k < batch; k++)
+		{
+			int count = done + k;
+			Random ra = new Random(Sampler.repetitionSeed(seed, count));
+			boolean recording = recordSample && count == 0;
+			switch (algorithm)
+			{
+				case ES:
+					samples[k] = new EdgeSample(ra, recording, sampleSize / 2);
+					break;
+				case PIES:
+					samples[k] = new InducedSample(ra, recording, sampleSize);
+					break;
+				case NS:
+					samples[k] = new NodeSample(ra, recording, Math.min(sampleSize, nodeNumber), nodeNumber);
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Adds the degrees of the nodes sampled by the current
+	 * batch to the sums, once its pass is over.
+	 */
+	private void collect(StreamingGroundTruth truth)
+	{
+		int maxDegreeIn = truth.maxDegreeIn;
+		int maxDegreeOut = truth.maxDegreeOut;
+		if (percent1In == null)
+		{
+			percent1In = new double[maxDegreeIn + 1];
+			percent1Out = new double[maxDegreeOut + 1];
+			percent2In = new double[maxDegreeIn + 1];
+			percent2Out = new double[maxDegreeOut + 1];
+			sampleNumbers = new int[simulation];
+			totalSample = 0;
+		}
+		long[] countIn = new long[maxDegreeIn + 1];
+		long[] countOut = new long[maxDegreeOut + 1];
+		for (int count = done; count < done + batch; count++)
+		{
+			Sample sample = samples[count - done];
+			samples[count - done] = null;
+			IntList nodes = sample.nodes();
+			Arrays.fill(countIn, 0);
+			Arrays.fill(countOut, 0);
+			int singleSample = 0;
+			IntList realNodes = new IntList(nodes.size());
+			for (int k = 0; k < nodes.size(); k++)
+			{
+				int v = nodes.get(k);
+				int in = truth.degreeIn(v);
+				int out = truth.degreeOut(v);
+				if (in + out == 0)
+					continue;
+				countIn[in]++;
+				countOut[out]++;
+				realNodes.add(v);
+				singleSample++;
+			}
+			totalSample = totalSample + singleSample;
+			sampleNumbers[count] = singleSample;
+			if (sample.recording)
+			{
+				sampledNodes = realNodes;
+				sampledArcs = sample.arcs();
+			}
+
+			long cumulated = 0;
+			for (int m = 0; m <= maxDegreeIn; m++)
+			{
+				cumulated = cumulated + countIn[m];
+				double percent3 = cumulated / (double)singleSample;
+				percent1In[m] = percent1In[m] + percent3;
+				percent2In[m] = percent2In[m] + (percent3 - truth.percentIn[m]) * (percent3 - truth.percentIn[m]);
+			}
+			cumulated = 0;
+			for (int m = 0; m <= maxDegreeOut; m++)
+			{
+				cumulated = cumulated + countOut[m];
+				double percent3 = cumulated / (double)singleSample;
+				percent1Out[m] = percent1Out[m] + percent3;
+				percent2Out[m] = percent2Out[m] + (percent3 - truth.percentOut[m]) * (percent3 - truth.percentOut[m]);
+			}
+		}
+		samples = null;
+		done = done + batch;
+	}
+
+	/**
+	 * Averages the sums, once all the repetitions are processed.
+	 */
+	private void finish(StreamingGroundTruth truth)
+	{
+		int maxDegreeIn = truth.maxDegreeIn;
+		int maxDegreeOut = truth.maxDegreeOut;
+		for (int m = 0; m <= maxDegreeIn; m++)
+		{
+			percent1In[m] = percent1In[m] / (double)simulation;
+			if (truth.percentIn[m] != 0)
+				percent2In[m] = Math.sqrt(percent2In[m] / (double)simulation) / truth.percentIn[m];
+			else
+				percent2In[m] = 0;
+		}
+		for (int m = 0; m <= maxDegreeOut; m++)
+		{
+			percent1Out[m] = percent1Out[m] / (double)simulation;
+			if (truth.percentOut[m] != 0)
+				percent2Out[m] = Math.sqrt(percent2Out[m] / (double)simulation) / truth.percentOut[m];
+			else
+				percent2Out[m] = 0;
+		}
+	}
+
+	/**
+	 * Records the estimated CDF and NMSE, in the same
+	 * files as {@link Sampler#writeResults(String)}.
+	 *
+	 * @param folder
+	 * 		Folder receiving the files.
+	 *
+	 * @throws FileNotFoundException
+	 * 		Problem while recording the files.
+	 */
+	void writeResults(String folder) throws FileNotFoundException
+	{
+		String prefix = folder + File.separator + algorithm;
+		Graph.writeValues(prefix + "_in_degree_distribution.txt", percent1In, percent1In.length - 1);
+		Graph.writeValues(prefix + "_out_degree_distribution.txt", percent1Out, percent1Out.length - 1);
+		Graph.writeValues(prefix + "_in_degree_NMSE.txt", percent2In, percent2In.length - 1);
+		Graph.writeValues(prefix + "_out_degree_NMSE.txt", percent2Out, percent2Out.length - 1);
+	}
+
+	/**
+	 * Displays the averages over the repetitions.
+	 *
+	 * @param out
+	 * 		Stream receiving the text.
+	 * @param truth
+	 * 		True distributions.
+	 */
+	void printSummary(PrintStream out, StreamingGroundTruth truth)
+	{
+		out.println(algorithm + ": Average Sample Number = " + totalSample / simulation);
+		out.println(algorithm + ": Distance (In) = " + Sampler.distance(percent1In, truth.percentIn));
+		out.println(algorithm + ": Distance (Out) = " + Sampler.distance(percent1Out, truth.percentOut));
+	}
+
+	/**
+	 * State of one repetition during the pass.
+	 */
+	private abstract static class Sample
+	{
+		final Random random;
+		final boolean recording;
+		final IntList arcs;				// kept links, if recording
+
+		Sample(Random random, boolean recording)
+		{
+			this.random = random;
+			this.recording = recording;
+			arcs = recording ? new IntList() : null;
+		}
+
+		/**
+		 * Processes the next edge of the stream.
+		 *
+		 * @param from
+		 * 		Origin of the edge.
+		 * @param to
+		 * 		Destination of the edge.
+		 * @param t
+		 * 		Number of edges read so far, this one included.
+		 */
+		abstract void edge(int from, int to, long t);
+
+		/**
+		 * Sampled nodes, once the pass is over.
+		 */
+		abstract IntList nodes();
+
+		/**
+		 * Links between the sampled nodes, once the pass is over.
+		 */
+		IntList arcs()
+		{
+			return arcs;
+		}
+	}
+
+	private static class EdgeSample extends Sample
+	{
+		private final int[] sources;
+		private final int[] targets;
+		private int size = 0;
+
+		EdgeSample(Random random, boolean recording, int edges)
+		{
+			super(random, recording);
+			sources = new int[edges];
+			targets = new int[edges];
+		}
+
+		@Override
+		void edge(int from, int to, long t)
+		{
+			int k;
+			if (size < sources.length)
+				k = size++;
+			else
+			{
+				long j = (long)(random.nextDouble() * t);
+				if (j >= sources.length)
+					return;
+				k = (int)j;
+			}
+			sources[k] = from;
+			targets[k] = to;
+		}
+
+		@Override
+		IntList nodes()
+		{
+			IntList result = new IntList(2 * size);
+			NodeSet seen = new NodeSet(2 * size);
+			for (int k = 0; k < size; k++)
+			{
+				add(result, seen, sources[k]);
+				add(result, seen, targets[k]);
+			}
+			return result;
+		}
+
+		private static void add(IntList result, NodeSet seen, int v)
+		{
+			if (seen.get(v) < 0)
+			{
+				seen.put(v, result.size());
+				result.add(v);
+			}
+		}
+
+		@Override
+		IntList arcs()
+		{
+			if (!recording)
+				return null;
+			for (int k = 0; k < size; k++)
+			{
+				arcs.add(sources[k]);
+				arcs.add(targets[k]);
+			}
+			return arcs;
+		}
+	}
+
+	private static class InducedSample extends Sample
+	{
+		private final int[] nodes;
+		private final int[] stamps;		// value of changes when each node was inserted
+		private final NodeSet index;
+		private final IntList arcStamps;
+		private int size = 0;
+		private int changes = 0;
+		private long full = 0;			// edges read when the reservoir got full
+
+		InducedSample(Random random, boolean recording, int capacity)
+		{
+			super(random, recording);
+			nodes = new int[capacity];
+			stamps = new int[capacity];
+			index = new NodeSet(capacity);
+			arcStamps = recording ? new IntList() : null;
+		}
+
+		@Override
+		void edge(int from, int to, long t)
+		{
+			if (size < nodes.length)
+			{
+				insert(from);
+				insert(to);
+				if (size == nodes.length)
+					full = t;
+			}
+			else if (random.nextDouble() * t < full)
+			{
+				int i = -1;
+				if (index.get(from) < 0)
+				{
+					i = random.nextInt(nodes.length);
+					replace(i, from);
+				}
+				if (index.get(to) < 0)
+				{	// not the node just inserted
+					int j;
+					if (i < 0)
+						j = random.nextInt(nodes.length);
+					else
+					{
+						j = random.nextInt(nodes.length - 1);
+						if (j >= i)
+							j++;
+					}
+					replace(j, to);
+				}
+			}
+			if (recording && index.get(from) >= 0 && index.get(to) >= 0)
+			{
+				arcs.add(from);
+				arcs.add(to);
+				arcStamps.add(changes);
+			}
+		}
+
+		private void insert(int v)
+		{
+			if (size < nodes.length && index.get(v) < 0)
+			{
+				nodes[size] = v;
+				stamps[size] = ++changes;
+				index.put(v, size);
+				size++;
+			}
+		}
+
+		private void replace(int k, int v)
+		{
+			index.remove(nodes[k]);
+			nodes[k] = v;
+			stamps[k] = ++changes;
+			index.put(v, k);
+		}
+
+		@Override
+		IntList nodes()
+		{
+			IntList result = new IntList(size);
+			for (int k = 0; k < size; k++)
+				result.add(nodes[k]);
+			return result;
+		}
+
+		/**
+		 * Only the links read after both endpoints were
+		 * last inserted are still in the sample.
+		 */
+		@Override
+		IntList arcs()
+		{
+			if (!recording)
+				return null;
+			IntList result = new IntList();
+			for (int a = 0; a < arcStamps.size(); a++)
+			{
+				int from = arcs.get(2 * a);
+				int to = arcs.get(2 * a + 1);
+				int k1 = index.get(from);
+				int k2 = index.get(to);
+				if (k1 >= 0 && k2 >= 0 && arcStamps.get(a) >= stamps[k1] && arcStamps.get(a) >= stamps[k2])
+				{
+					result.add(from);
+					result.add(to);
+				}
+			}
+			return result;
+		}
+	}
+
+	private static class NodeSample extends Sample
+	{
+		private final IntList nodes;
+		private final NodeSet index;
+
+		/**
+		 * Draws {@code size} distinct ids among {@code nodeNumber}
+		 * (Floyd's algorithm).
+		 */
+		NodeSample(Random random, boolean recording, int size, int nodeNumber)
+		{
+			super(random, recording);
+			nodes = new IntList(size);
+			index = new NodeSet(size);
+			for (int j = nodeNumber - size; j < nodeNumber; j++)
+			{
+				int v = random.nextInt(j + 1);
+				if (index.get(v) >= 0)
+					v = j;
+				index.put(v, nodes.size());
+				nodes.add(v);
+			}
+		}
+
+		@Override
+		void edge(int from, int to, long t)
+		{
+			if (recording && index.get(from) >= 0 && index.get(to) >= 0)
+			{
+				arcs.add(from);
+				arcs.add(to);
+			}
+		}
+
+		@Override
+		IntList nodes()
+		{
+			return nodes;
+		}
+	}
+
+	/**
+	 * Map from node ids to positions, for a bounded number of nodes
+	 * (open addressing with linear probing, removal by backward shift).
+	 */
+	private static class NodeSet
+	{
+		private final int[] keys;		// id + 1, 0 for an empty slot
+		private final int[] values;
+		private final int mask;
+
+		NodeSet(int capacity)
+		{
+			int length = slots(capacity);
+			keys = new int[length];
+			values = new int[length];
+			mask = length - 1;
+		}
+
+		private static int slots(int capacity)
+		{
+			return Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1) * 2;
+		}
+
+		static long bytes(int capacity)
+		{
+			return 8L * slots(capacity);
+		}
+
+		private static int hash(int v)
+		{
+			int h = v * 0x9E3779B9;
+			return h ^ (h >>> 16);
+		}
+
+		private int slot(int v)
+		{
+			int s = hash(v) & mask;
+			while (keys[s] != 0 && keys[s] != v + 1)
+				s = (s + 1) & mask;
+			return s;
+		}
+
+		int get(int v)
+		{
+			int s = slot(v);
+			return keys[s] == 0 ? -1 : values[s];
+		}
+
+		void put(int v, int value)
+		{
+			int s = slot(v);
+			keys[s] = v + 1;
+			values[s] = value;
+		}
+
+		void remove(int v)
+		{
+			int s = slot(v);
+			if (keys[s] == 0)
+				return;
+			// move back the following keys which cannot be reached anymore
+			int hole = s;
+			s = (s + 1) & mask;
+			while (keys[s] != 0)
+			{
+				int home = hash(keys[s] - 1) & mask;
+				if (((s - home) & mask) >= ((s - hole) & mask))
+				{
+					keys[hole] = keys[s];
+					values[hole] = values[s];
+					hole = s;
+				}
+				s = (s + 1) & mask;
+			}
+			keys[hole] = 0;
+		}
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		List<Algorithm> algorithms = new ArrayList<Algorithm>(Arrays.asList(Algorithm.values()));
+		String folder = new File(args[0]).getAbsoluteFile().getParent();
+		for (int a = 1; a < args.length; a++)
+		{
+			if (args[a].equals("-algo"))
+			{
+				algorithms.clear();
+				for (String algo: args[++a].split(","))
+					algorithms.add(Algorithm.valueOf(algo));
+			}
+			else if (args[a].equals("-simulation"))
+				AlbatrossSampling.simulation = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-sizeFactor"))
+				AlbatrossSampling.sizeFactor = Integer.parseInt(args[++a]);
+			else if (args[a].equals("-memory"))
+				AlbatrossSampling.streamingMemory = Long.parseLong(args[++a]);
+			else if (args[a].equals("-out"))
+				folder = args[++a];
+			else
+				throw new IllegalArgumentException("Unknown option " + args[a]);
+		}
+		AlbatrossSampling.sampleStream(args[0], algorithms, folder, System.out);
+	}
+}
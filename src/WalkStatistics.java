@@ -0,0 +1,252 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Estimations of other topological properties than the degree
+ * distributions, updated by a {@link Sampler} as it walks, so that
+ * they do not require exporting the sample (see {@code script/test.R}).
+ * The sums are pooled over all the repetitions.
+ * <ul>
+ * 	<li>average in and out degrees, and undirected degree (number of
+ * 	distinct neighbors, like {@link Graph#allLinks}), of the sampled nodes;</li>
+ * 	<li>degree assortativity: at each MH proposal, the pair made of the
+ * 	current node and the proposed neighbor is weighted by the degree of the
+ * 	current node, so that the pairs are those of uniformly drawn links. The
+ * 	assortativity is the Pearson correlation of the degrees at both ends of
+ * 	the links (undirected, hence symmetric);</li>
+ * 	<li>clustering: the proposed neighbor and another neighbor drawn at the
+ * 	current node form a wedge, checked for closure in the neighbors of the
+ * 	proposed node. The average of the checks estimates the average local
+ * 	transitivity of the nodes of degree 2 or more, and weighting them by
+ * 	the number of wedges of the node, the global transitivity.</li>
+ * </ul>
+ * The samplers visit the nodes uniformly in the long run, so the node
+ * averages need no other weight, just like the CDF estimations. BFS makes
+ * no proposal, so only the average degrees are available for it.
+ * <br/>
+ * Both neighbor lists were read by the walk through its {@link NeighborSource},
+ * and charged to its budget, so no other node is queried. Checking a wedge
+ * requires scanning the neighbors of the proposed node. To keep the extra
+ * work constant per sampled node, each node gives {@link #WORK_PER_NODE}
+ * units of work, and a wedge is only checked when the work spent so far is
+ * covered, which does not depend on the current node. The statistics use
+ * their own generator, so the walks are not modified.
+ */
+class WalkStatistics
+{
+	/** Units of work (scanned neighbors) given by each sampled node */
+	private static final int WORK_PER_NODE = 32;
+
+	private final Graph graph;
+	private Random random;
+	private long credit;
+
+	// sums over all the repetitions
+	long samples;
+	double degreeInSum;
+	double degreeOutSum;
+	double degreeSum;
+	long wedgeChecks;
+	long closedWedges;
+	double wedgeWeight;					// sum of the wedge numbers of the checked nodes
+	double closedWeight;
+	double linkWeight;					// sum of the degrees of the sampled nodes with a neighbor
+	double sumX;						// weighted sums of the degrees of the link ends
+	double sumXX;
+	double sumXY;
+
+	/**
+	 * Creates empty statistics.
+	 *
+	 * @param graph
+	 * 		Sampled graph.
+	 */
+	WalkStatistics(Graph graph)
+	{
+		this.graph = graph;
+	}
+
+	/**
+	 * Called at the start of each repetition.
+	 *
+	 * @param seed
+	 * 		Seed of the repetition.
+	 */
+	void startRepetition(long seed)
+	{
+		random = new Random(~seed);
+		credit = 0;
+	}
+
+	/**
+	 * Adds a sampled node.
+	 *
+	 * @param v
+	 * 		Sampled node.
+	 * @param degree
+	 * 		Undirected degree of the node, as read by the walk.
+	 */
+	void sampled(int v, int degree)
+	{
+		samples++;
+		degreeInSum = degreeInSum + graph.inLinks[v].length;
+		degreeOutSum = degreeOutSum + graph.outLinks[v].length;
+		degreeSum = degreeSum + degree;
+		credit = credit + WORK_PER_NODE;
+	}
+
+	/**
+	 * Adds a MH proposal: the walk stands on a node and
+	 * proposes one of its neighbors, drawn uniformly.
+	 *
+	 * @param neighV
+	 * 		Neighbors of the current node.
+	 * @param w
+	 * 		Proposed neighbor.
+	 * @param neighW
+	 * 		Neighbors of the proposed node.
+	 */
+	void proposed(int[] neighV, int w, int[] neighW)
+	{
+		// assortativity
+		int degree = neighV.length;
+		int degreeW = neighW.length;
+		linkWeight = linkWeight + degree;
+		sumX = sumX + degree * (double)(degree + degreeW) / 2;
+		sumXX = sumXX + degree * ((double)degree * degree + (double)degreeW * degreeW) / 2;
+		sumXY = sumXY + degree * (double)degree * degreeW;
+
+		// clustering
+		if (degree >= 2 && credit > 0)
+		{	// the neighbors are distinct, so b is another neighbor than w
+			int b;
+			do
+				b = neighV[random.nextInt(degree)];
+			while (b == w);
+			boolean closed = false;
+			for (int k = 0; k < neighW.length && !closed; k++)
+				closed = neighW[k] == b;
+			credit = credit - neighW.length - 1;
+			double wedges = degree * (degree - 1) / 2.0;
+			wedgeChecks++;
+			wedgeWeight = wedgeWeight + wedges;
+			if (closed)
+			{
+				closedWedges++;
+				closedWeight = closedWeight + wedges;
+			}
+		}
+	}
+
+	/**
+	 * @return
+	 * 		Average in degree of the sampled nodes.
+	 */
+	double averageDegreeIn()
+	{
+		return degreeInSum / samples;
+	}
+
+	/**
+	 * @return
+	 * 		Average out degree of the sampled nodes.
+	 */
+	double averageDegreeOut()
+	{
+		return degreeOutSum / samples;
+	}
+
+	/**
+	 * @return
+	 * 		Average undirected degree of the sampled nodes.
+	 */
+	double averageDegree()
+	{
+		return degreeSum / samples;
+	}
+
+	/**
+	 * @return
+	 * 		Whether the walk made proposals, i.e. whether the
+	 * 		clustering and assortativity could be estimated.
+	 */
+	boolean hasProposals()
+	{
+		return linkWeight > 0;
+	}
+
+	/**
+	 * @return
+	 * 		Estimated average local transitivity, over
+	 * 		the nodes of degree 2 or more.
+	 */
+	double averageClustering()
+	{
+		return (double)closedWedges / wedgeChecks;
+	}
+
+	/**
+	 * @return
+	 * 		Estimated global transitivity (proportion
+	 * 		of closed wedges).
+	 */
+	double transitivity()
+	{
+		return closedWeight / wedgeWeight;
+	}
+
+	/**
+	 * @return
+	 * 		Estimated degree assortativity.
+	 */
+	double assortativity()
+	{
+		double mean = sumX / linkWeight;
+		double variance = sumXX / linkWeight - mean * mean;
+		return (sumXY / linkWeight - mean * mean) / variance;
+	}
+
+	/**
+	 * Records the sums, in a checkpoint.
+	 */
+	void save(DataOutputStream out) throws IOException
+	{
+		out.writeLong(samples);
+		out.writeDouble(degreeInSum);
+		out.writeDouble(degreeOutSum);
+		out.writeDouble(degreeSum);
+		out.writeLong(wedgeChecks);
+		out.writeLong(closedWedges);
+		out.writeDouble(wedgeWeight);
+		out.writeDouble(closedWeight);
+		out.writeDouble(linkWeight);
+		out.writeDouble(sumX);
+		out.writeDouble(sumXX);
+		out.writeDouble(sumXY);
+	}
+
+	/**
+	 * Reads the sums recorded by {@link #save(DataOutputStream)}
+	 * into new statistics, so that these ones are left untouched
+	 * if the checkpoint is invalid.
+	 */
+	WalkStatistics restore(DataInputStream in) throws IOException
+	{
+		WalkStatistics result = new WalkStatistics(graph);
+		result.samples = in.readLong();
+		result.degreeInSum = in.readDouble();
+		result.degreeOutSum = in.readDouble();
+		result.degreeSum = in.readDouble();
+		result.wedgeChecks = in.readLong();
+		result.closedWedges = in.readLong();
+		result.wedgeWeight = in.readDouble();
+		result.closedWeight = in.readDouble();
+		result.linkWeight = in.readDouble();
+		result.sumX = in.readDouble();
+		result.sumXX = in.readDouble();
+		result.sumXY = in.readDouble();
+		return result;
+	}
+}